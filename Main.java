@@ -1,22 +1,91 @@
+import graph.CompactGraph;
+import graph.Edge;
 import graph.Graph;
 import graph.Node;
+import input.MappedProblem;
 import input.Problem;
 import input.Query;
+import input.StreamingProblem;
+import metrics.InstrumentedPathResolver;
+import metrics.Metrics;
+import path.CachingPathResolver;
+import path.EulerTourPathResolver;
+import path.HeavyLightPathResolver;
+import path.IncrementalPathResolver;
+import path.IntTable;
+import path.KruskalPathResolver;
 import path.LCAPathResolver;
 import path.NaivePathResolver;
+import path.OnlinePathResolver;
 import path.PathResolver;
+import path.ResolverPlanner;
+import path.Snapshot;
 import path.TarjanLCAPathResolver;
+import pipeline.AnswerWriter;
+import pipeline.Pipeline;
+import server.QueryServer;
 
-import java.io.FileNotFoundException;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 
 public class Main {
     enum Version {
-        V1, V2, V3;
+        V1, V2, V3, V4, V5, AUTO;
+    }
+
+    private static class ResolverOptions {
+        private final Version version;
+        private final IntTable.Storage storage;
+        private final CompactGraph.NodeOrder relabeling;
+        private final int cacheCapacity;
+        private final Metrics metrics;
+
+        /**
+         * Creates the options of the resolvers built by the streaming, pipelined and server modes:
+         * <li> - version: the resolver to be built.
+         * <li> - storage: where the tables of the resolvers are stored (--off-heap, for the LCA, Kruskal and Euler tour
+         *        resolvers).
+         * <li> - relabeling: order of the dense ids of the spanning forest the resolvers are built on (--relabel, see
+         *        CompactGraph.relabel()).
+         * <li> - cacheCapacity: the capacity of the answer cache (no front-end if negative, no cache if 0).
+         * <li> - metrics: where the phases, the retained heap and the query latencies are recorded (null for none).
+         */
+        private ResolverOptions(Version version, IntTable.Storage storage, CompactGraph.NodeOrder relabeling,
+                                int cacheCapacity, Metrics metrics) {
+            this.version = version;
+            this.storage = storage;
+            this.relabeling = relabeling;
+            this.cacheCapacity = cacheCapacity;
+            this.metrics = metrics;
+        }
+    }
+
+    private static class Setup<R extends PathResolver> {
+        private final R resolver;
+        private final ResolverPlanner.Plan plan;
+
+        /**
+         * Creates the outcome of a resolver build:
+         * <li> - resolver: the resolver, behind its front-ends if any.
+         * <li> - plan: the plan the resolver was chosen by (null unless Version.AUTO), to compare its estimates with
+         *        the actual costs.
+         */
+        private Setup(R resolver, ResolverPlanner.Plan plan) {
+            this.resolver = resolver;
+            this.plan = plan;
+        }
     }
 
     private static void itineraries(Graph mst, Collection<Query> queries, Version version) {
@@ -28,6 +97,8 @@ public class Main {
             case V1: pathResolver = new NaivePathResolver(mst); break;
             case V2: pathResolver = new LCAPathResolver(mst); break;
             case V3: pathResolver = new TarjanLCAPathResolver(mst, queries); break;
+            case V4: pathResolver = new KruskalPathResolver(mst); break;
+            case V5: pathResolver = new EulerTourPathResolver(mst); break;
             default: throw new RuntimeException("Unrecognized version.");
         }
         endTime = System.currentTimeMillis();
@@ -57,11 +128,21 @@ public class Main {
         itineraries(mst, queries, Version.V3);
     }
 
+    private static void itineraries_v4(Graph mst, Collection<Query> queries) {
+        itineraries(mst, queries, Version.V4);
+    }
+
+    private static void itineraries_v5(Graph mst, Collection<Query> queries) {
+        itineraries(mst, queries, Version.V5);
+    }
+
     private static void itineraries_test(Graph mst, Collection<Query> queries) {
         long startTime = System.currentTimeMillis();
         NaivePathResolver naive = new NaivePathResolver(mst);
         LCAPathResolver lca = new LCAPathResolver(mst);
         TarjanLCAPathResolver tarjan = new TarjanLCAPathResolver(mst, queries);
+        KruskalPathResolver kruskal = new KruskalPathResolver(mst);
+        EulerTourPathResolver euler = new EulerTourPathResolver(mst);
         long endTime = System.currentTimeMillis();
         System.out.println(String.format("[%s][warming-up] %s ms", tarjan, endTime - startTime));
 
@@ -70,25 +151,624 @@ public class Main {
             System.out.println("Input: " + query);
             Node lcaV2 = lca.findLowestCommonAncestor(query.getStart(), query.getEnd());
             Node lcaV3 = tarjan.findLowestCommonAncestor(query);
+            Node lcaV5 = euler.findLowestCommonAncestor(query.getStart(), query.getEnd());
             int noiseV1 = naive.getMaximumNoise(query);
             int noiseV2 = lca.getMaximumNoise(query);
             int noiseV3 = tarjan.getMaximumNoise(query);
+            int noiseV4 = kruskal.getMaximumNoise(query);
+            int noiseV5 = euler.getMaximumNoise(query);
             System.out.println("Output V1: " + noiseV1);
             System.out.println("Output V2: " + noiseV2);
             System.out.println("Output V3: " + noiseV3);
-            if (!lcaV2.equals(lcaV3)) {
-                throw new RuntimeException("LCAs don't match: " + lcaV2 + " vs " + lcaV3);
+            System.out.println("Output V4: " + noiseV4);
+            System.out.println("Output V5: " + noiseV5);
+            if (!lcaV2.equals(lcaV3) || !lcaV2.equals(lcaV5)) {
+                throw new RuntimeException("LCAs don't match: " + lcaV2 + " vs " + lcaV3 + " vs " + lcaV5);
             }
-            if (noiseV1 != noiseV2 || noiseV2 != noiseV3) {
-                throw new RuntimeException("Noises don't match: " + noiseV1 + " vs " + noiseV2 + " vs " + noiseV3);
+            if (noiseV1 != noiseV2 || noiseV2 != noiseV3 || noiseV3 != noiseV4 || noiseV4 != noiseV5) {
+                throw new RuntimeException(
+                    "Noises don't match: " + noiseV1 + " vs " + noiseV2 + " vs " + noiseV3 + " vs " + noiseV4 + " vs "
+                        + noiseV5
+                );
             }
         }
         endTime = System.currentTimeMillis();
         System.out.println(String.format("[%s][processing] %s ms", tarjan, endTime - startTime));
     }
 
-    public static void main(String[] args) throws FileNotFoundException, ParseException {
-        String fileName = "resources/itineraries.9.in";
+    /**
+     * Cross-checks the resolvers that maintain their forest (HeavyLightPathResolver through noise updates,
+     * IncrementalPathResolver through edge insertions), the Kruskal reconstruction tree and the Euler tour resolver (on
+     * the spanning forest as is, and relabeled off the heap) against NaivePathResolver,
+     * on seeded random graphs of a few hundred nodes (several components, sparse node indexes, parallel edges and ties).
+     * After the build and after each batch of updates or insertions, random pairs of nodes are compared with a naive
+     * search over the minimum spanning forest of the graph as it stands.
+     * @param seed: the seed of the random graphs, updates and queries.
+     * @param nbRounds: the number of random graphs.
+     */
+    private static void itineraries_check(long seed, int nbRounds) {
+        Random random = new Random(seed);
+        long nbQueries = 0;
+        long startTime = System.currentTimeMillis();
+        for (int round = 0; round < nbRounds; round++) {
+            // Random trees over the residues of the node numbers modulo nbComponents, plus edges inside each tree
+            int nbComponents = 1 + random.nextInt(3);
+            int nbNodes = 2 * nbComponents + random.nextInt(200);
+            int stride = 1 + random.nextInt(1000);
+            int maxNoise = 1 + random.nextInt(100);
+            int nbEdges = nbNodes - nbComponents + random.nextInt(3 * nbNodes);
+            int nbInsertions = 2 * nbNodes;
+            int[] sources = new int[nbEdges + nbInsertions];
+            int[] targets = new int[nbEdges + nbInsertions];
+            int[] noises = new int[nbEdges + nbInsertions];
+            for (int edge = 0; edge < nbEdges; edge++) {
+                int node = edge < nbNodes - nbComponents ? edge + nbComponents : random.nextInt(nbNodes);
+                int residue = node % nbComponents;
+                int other;
+                if (edge < nbNodes - nbComponents) {
+                    other = residue + nbComponents * random.nextInt(node / nbComponents);
+                } else {
+                    do {
+                        other = residue + nbComponents * random.nextInt((nbNodes - 1 - residue) / nbComponents + 1);
+                    } while (other == node);
+                }
+                sources[edge] = node * stride;
+                targets[edge] = other * stride;
+                noises[edge] = random.nextInt(maxNoise);
+            }
+            String name = String.format("seed %s, round %s", seed, round);
+            CompactGraph graph = new CompactGraph(nbEdges, sources, targets, noises);
+            nbQueries += checkAgainstNaive(new KruskalPathResolver(graph), graph, nbNodes, stride, random, name);
+            CompactGraph forest = graph.getMinimumSpanningForest();
+            nbQueries += checkAgainstNaive(new EulerTourPathResolver(forest), graph, nbNodes, stride, random, name);
+            CompactGraph relabeledForest = forest.relabel(CompactGraph.NodeOrder.HEAVY_PATH);
+            try (EulerTourPathResolver euler = new EulerTourPathResolver(relabeledForest, IntTable.Storage.OFF_HEAP)) {
+                nbQueries += checkAgainstNaive(euler, graph, nbNodes, stride, random, name);
+            }
+
+            // Noise updates of random edges, queried after each batch
+            HeavyLightPathResolver heavyLight = new HeavyLightPathResolver(graph);
+            int[] updatedNoises = Arrays.copyOf(noises, nbEdges);
+            for (int batch = 0; batch < 4; batch++) {
+                for (int i = 0; i < nbNodes; i++) {
+                    int edge = random.nextInt(nbEdges);
+                    int newNoise = random.nextInt(maxNoise);
+                    Edge updated = new Edge(new Node(sources[edge]), new Node(targets[edge]), updatedNoises[edge]);
+                    heavyLight.updateNoise(updated, newNoise);
+                    updatedNoises[edge] = newNoise;
+                }
+                CompactGraph updatedGraph = new CompactGraph(nbEdges, sources, targets, updatedNoises);
+                nbQueries += checkAgainstNaive(heavyLight, updatedGraph, nbNodes, stride, random, name);
+            }
+
+            // Insertions of random edges, across the components and to new nodes, queried after each batch
+            IncrementalPathResolver incremental = new IncrementalPathResolver(graph);
+            nbQueries += checkAgainstNaive(incremental, graph, nbNodes, stride, random, name);
+            int nbGrownNodes = nbNodes;
+            for (int batch = 0; batch < 4; batch++) {
+                for (int i = 0; i < nbInsertions / 4; i++) {
+                    int node = random.nextInt(nbGrownNodes);
+                    int other = random.nextInt(8) == 0 ? nbGrownNodes++ : random.nextInt(nbGrownNodes);
+                    if (other == node) {
+                        other = (node + 1) % nbGrownNodes;
+                    }
+                    sources[nbEdges] = node * stride;
+                    targets[nbEdges] = other * stride;
+                    noises[nbEdges] = random.nextInt(maxNoise);
+                    incremental.addEdge(sources[nbEdges], targets[nbEdges], noises[nbEdges]);
+                    nbEdges++;
+                }
+                CompactGraph grownGraph = new CompactGraph(nbEdges, sources, targets, noises);
+                if (incremental.getTotalNoise() != grownGraph.getMinimumSpanningForest().getTotalNoise()) {
+                    throw new RuntimeException(String.format("Total noises don't match (%s): %s vs %s", name,
+                        incremental.getTotalNoise(), grownGraph.getMinimumSpanningForest().getTotalNoise()));
+                }
+                nbQueries += checkAgainstNaive(incremental, grownGraph, nbGrownNodes, stride, random, name);
+            }
+        }
+        long endTime = System.currentTimeMillis();
+        System.out.println(String.format("[check][seed %s] %s graphs, %s queries, %s ms", seed, nbRounds, nbQueries,
+            endTime - startTime));
+    }
+
+    /**
+     * Compares the answers of a resolver with those of NaivePathResolver on random pairs of nodes of a graph.
+     * @param pathResolver: the resolver to be checked.
+     * @param graph: the graph the resolver stands for.
+     * @param nbNodes: the number of nodes of the graph (numbered 0, stride, 2 * stride, ...).
+     * @param stride: the gap between the indexes of consecutive nodes.
+     * @param random: the source of the pairs.
+     * @param name: what is checked (for the error message).
+     * @return the number of pairs compared.
+     */
+    private static long checkAgainstNaive(OnlinePathResolver pathResolver, CompactGraph graph, int nbNodes, int stride,
+                                          Random random, String name) {
+        NaivePathResolver naive = new NaivePathResolver(graph.getMinimumSpanningForest());
+        int nbPairs = 4 * nbNodes;
+        for (int i = 0; i < nbPairs; i++) {
+            int start = random.nextInt(nbNodes) * stride;
+            int end = random.nextInt(nbNodes) * stride;
+            int expected = naive.getMaximumNoise(start, end);
+            int actual = pathResolver.getMaximumNoise(start, end);
+            if (expected != actual) {
+                throw new RuntimeException(String.format("Noises don't match (%s, %s, %s to %s): %s vs %s", name,
+                    pathResolver, start, end, expected, actual));
+            }
+        }
+        return nbPairs;
+    }
+
+    /**
+     * Builds a resolver for queries that are not known up front, answered in batches (Tarjan's resolver then runs one
+     * pass per batch, and can be neither cached nor queried one at a time).
+     * @param graph: the input graph (its minimum spanning forest is computed if the resolver needs a tree).
+     * @param options: the resolver to be built and its front-ends.
+     * @param nbQueries: the expected number of queries (for Version.AUTO, see ResolverPlanner).
+     * @param batchSize: the number of queries per batch.
+     * @return the resolver and its plan.
+     */
+    private static Setup<? extends PathResolver> createResolver(CompactGraph graph, ResolverOptions options,
+                                                                long nbQueries, int batchSize) {
+        if (options.version != Version.V3) {
+            return createOnlineResolver(graph, options, nbQueries, batchSize);
+        }
+        Setup<PathResolver> setup = buildResolver(graph, options, mst -> new Setup<>(new TarjanLCAPathResolver(mst), null));
+        return options.metrics == null ? setup
+            : new Setup<>(new InstrumentedPathResolver.Offline(setup.resolver, options.metrics), null);
+    }
+
+    /**
+     * Builds a resolver answering queries one at a time as well as in batches (Version.AUTO only plans online engines).
+     * @param options: the resolver to be built (anything but V3, which answers batches only) and its front-ends.
+     * @see #createResolver(CompactGraph, ResolverOptions, long, int)
+     */
+    private static Setup<OnlinePathResolver> createOnlineResolver(CompactGraph graph, ResolverOptions options,
+                                                                  long nbQueries, int batchSize) {
+        Setup<OnlinePathResolver> setup = buildResolver(graph, options, mst -> {
+            OnlinePathResolver built;
+            ResolverPlanner.Plan plan = null;
+            switch (options.version) {
+                case V1: built = new NaivePathResolver(mst); break;
+                case V2: built = new LCAPathResolver(mst, null, options.storage); break;
+                case V4: built = new KruskalPathResolver(mst, options.storage); break;
+                case V5: built = new EulerTourPathResolver(mst, options.storage); break;
+                case AUTO: {
+                    ResolverPlanner planner = new ResolverPlanner(mst);
+                    plan = planner.plan(nbQueries, batchSize, true);
+                    long buildTime = System.nanoTime();
+                    built = planner.buildOnline(plan, options.storage);
+                    System.err.println(String.format(
+                        "[planner] %s nodes, depth %s, %s queries in batches of %s: %s", mst.getNbNodes(),
+                        planner.getDepth(), nbQueries, batchSize, plan
+                    ));
+                    System.err.println(String.format(
+                        "[planner][%s][build] estimated %.1f ms, actual %.1f ms", plan.getEngine(),
+                        plan.getEstimatedBuildTime(plan.getEngine()) / 1e6, (System.nanoTime() - buildTime) / 1e6
+                    ));
+                    break;
+                }
+                case V3: throw new IllegalArgumentException("V3 answers batches only, it cannot be queried one at a time.");
+                default: throw new RuntimeException("Unrecognized version.");
+            }
+            return new Setup<>(
+                options.cacheCapacity >= 0 ? CachingPathResolver.wrap(built, options.cacheCapacity) : built, plan
+            );
+        });
+        return options.metrics == null ? setup
+            : new Setup<>(InstrumentedPathResolver.wrap(setup.resolver, options.metrics), setup.plan);
+    }
+
+    /**
+     * Builds a resolver on the minimum spanning forest of a graph (on the graph itself for V4), and records the phases
+     * and the retained memory in the metrics of the options.
+     * @param graph: the input graph.
+     * @param options: the resolver to be built, the order of the forest and the metrics.
+     * @param builder: builds the resolver (and its front-end, if any) on the forest.
+     * @return the resolver and its plan.
+     */
+    private static <R extends PathResolver> Setup<R> buildResolver(CompactGraph graph, ResolverOptions options,
+                                                                   Function<CompactGraph, Setup<R>> builder) {
+        // The used heap is only measured when metrics are requested (it forces full collections)
+        Metrics metrics = options.metrics;
+        long usedHeap = metrics != null ? Metrics.getUsedHeap() : 0;
+        long usedDirectMemory = Metrics.getUsedDirectMemory();
+        long startTime = System.nanoTime();
+        CompactGraph mst = options.version == Version.V4 ? graph
+            : graph.getMinimumSpanningForest().relabel(options.relabeling);
+        long mstTime = System.nanoTime();
+        Setup<R> setup = builder.apply(mst);
+        long endTime = System.nanoTime();
+        if (metrics == null) {
+            return setup;
+        }
+
+        // The retained heap includes the spanning forest, which most resolvers keep
+        if (options.version != Version.V4) {
+            metrics.setPhaseTime(Metrics.Phase.SPANNING_TREE, mstTime - startTime);
+        }
+        metrics.setPhaseTime(Metrics.Phase.RESOLVER_BUILD, endTime - mstTime);
+        metrics.setRetainedMemory(
+            Metrics.getUsedHeap() - usedHeap, Metrics.getUsedDirectMemory() - usedDirectMemory, graph.getNbNodes()
+        );
+        return setup;
+    }
+
+    /**
+     * Logs the estimated query time of a plan against the actual one (if the resolver was planned).
+     * @param plan: the plan of the resolver (null if it was not planned).
+     * @param queryTime: the time spent answering the queries, in nanoseconds.
+     */
+    private static void printPlanAccuracy(ResolverPlanner.Plan plan, long queryTime) {
+        if (plan != null) {
+            System.err.println(String.format(
+                "[planner][%s][queries] estimated %.1f ms, actual %.1f ms", plan.getEngine(),
+                plan.getEstimatedQueryTime(plan.getEngine()) / 1e6, queryTime / 1e6
+            ));
+        }
+    }
+
+    /**
+     * @return the metrics of a run (registered as an MBean if jmx), or null if neither a file nor jmx is requested.
+     */
+    private static Metrics createMetrics(Version version, String metricsName, boolean jmx) {
+        if (metricsName == null && !jmx) {
+            return null;
+        }
+        Metrics metrics = new Metrics();
+        if (jmx) {
+            metrics.register(version.toString());
+        }
+        return metrics;
+    }
+
+    /**
+     * Writes the metrics of a run (JSON if the file name ends with .json, CSV otherwise).
+     */
+    private static void writeMetrics(Metrics metrics, Version version, String fileName) throws IOException {
+        try (Writer writer = new BufferedWriter(new FileWriter(fileName))) {
+            metrics.write(writer, version.toString(), fileName.endsWith(".json"));
+        }
+    }
+
+    private static void printStatistics(PathResolver pathResolver) {
+        if (pathResolver instanceof InstrumentedPathResolver) {
+            pathResolver = ((InstrumentedPathResolver) pathResolver).getResolver();
+        }
+        if (pathResolver instanceof CachingPathResolver) {
+            CachingPathResolver cachingPathResolver = (CachingPathResolver) pathResolver;
+            System.err.println(String.format("[%s][statistics] %s", pathResolver, cachingPathResolver.getStatistics()));
+        }
+    }
+
+    /**
+     * Answers the queries of a stream in chunks: the graph section is preprocessed once, then each chunk of queries is
+     * read, resolved (in a single batch, so offline resolvers run one pass per chunk) and written before the next one
+     * is read. The memory used for the queries is bounded by the chunk size and the first answers are written as soon
+     * as the first chunk is resolved.
+     * @param problem: the problem, whose queries have not been read yet.
+     * @param options: the resolver to be used, its front-ends and metrics (phases and latencies).
+     * @param chunkSize: the maximum number of queries held in memory.
+     * @param output: where the answers are written (one per line, flushed after each chunk).
+     */
+    private static void itineraries_stream(StreamingProblem problem, ResolverOptions options, int chunkSize,
+                                           Writer output) throws IOException, ParseException {
+        long startTime, endTime;
+        PathResolver pathResolver;
+
+        startTime = System.currentTimeMillis();
+        Setup<? extends PathResolver> setup = createResolver(problem.getGraph(), options, problem.getNbQueries(), chunkSize);
+        pathResolver = setup.resolver;
+        endTime = System.currentTimeMillis();
+        System.err.println(String.format("[%s][warming-up] %s ms", pathResolver, endTime - startTime));
+
+        startTime = System.currentTimeMillis();
+        long queryTime = 0;
+        int[] starts = new int[chunkSize];
+        int[] ends = new int[chunkSize];
+        int[] answers = new int[chunkSize];
+        StringBuilder lines = new StringBuilder();
+        int nbQueries;
+        boolean first = true;
+        while ((nbQueries = problem.readQueries(starts, ends)) > 0) {
+            // The last chunk may be shorter
+            if (nbQueries < chunkSize) {
+                starts = Arrays.copyOf(starts, nbQueries);
+                ends = Arrays.copyOf(ends, nbQueries);
+                answers = new int[nbQueries];
+            }
+            long queryStartTime = System.nanoTime();
+            pathResolver.getMaximumNoises(starts, ends, answers);
+            queryTime += System.nanoTime() - queryStartTime;
+            for (int i = 0; i < nbQueries; i++) {
+                lines.append(answers[i]).append('\n');
+            }
+            output.append(lines);
+            output.flush();
+            lines.setLength(0);
+            if (first) {
+                first = false;
+                System.err.println(String.format("[%s][first-answers] %s ms", pathResolver, System.currentTimeMillis() - startTime));
+            }
+        }
+        endTime = System.currentTimeMillis();
+        System.err.println(String.format("[%s][processing] %s ms", pathResolver, endTime - startTime));
+        printPlanAccuracy(setup.plan, queryTime);
+        printStatistics(pathResolver);
+        pathResolver.close();
+    }
+
+    /**
+     * Answers the queries of a stream through a pipeline whose parsing, resolution and output stages overlap.
+     * @param problem: the problem, whose queries have not been read yet.
+     * @param options: the resolver to be used, its front-ends and metrics (phases and latencies).
+     * @param chunkSize: the number of queries per batch.
+     * @param nbWorkers: the number of workers resolving each batch.
+     * @param output: where the answers are written.
+     */
+    private static void itineraries_pipeline(StreamingProblem problem, ResolverOptions options, int chunkSize,
+                                             int nbWorkers, AnswerWriter output) throws IOException, ParseException {
+        long startTime, endTime;
+        PathResolver pathResolver;
+
+        startTime = System.currentTimeMillis();
+        Setup<? extends PathResolver> setup = createResolver(problem.getGraph(), options, problem.getNbQueries(), chunkSize);
+        pathResolver = setup.resolver;
+        endTime = System.currentTimeMillis();
+        System.err.println(String.format("[%s][warming-up] %s ms", pathResolver, endTime - startTime));
+
+        startTime = System.currentTimeMillis();
+        ForkJoinPool pool = new ForkJoinPool(nbWorkers);
+        Pipeline pipeline = new Pipeline(problem, pathResolver, output, chunkSize, 4, pool);
+        try {
+            pipeline.run();
+        } finally {
+            pool.shutdown();
+        }
+        endTime = System.currentTimeMillis();
+        System.err.println(String.format(
+            "[%s][processing] %s ms (parsing %s ms, resolving %s ms, writing %s ms)", pathResolver,
+            endTime - startTime, pipeline.getParseTime() / 1000000, pipeline.getResolveTime() / 1000000,
+            pipeline.getWriteTime() / 1000000
+        ));
+        printPlanAccuracy(setup.plan, pipeline.getResolveTime());
+        printStatistics(pathResolver);
+        pathResolver.close();
+    }
+
+    /**
+     * Serves queries over TCP on localhost until the process is stopped (see QueryServer for the protocol).
+     * @param graph: the graph of the problem (its queries are only counted, as the expected workload).
+     * @param options: the resolver to be used (online, so anything but V3; V2 and V4 are recommended), its front-ends
+     *        and metrics (phases and latencies).
+     * @param port: the port to listen to (0 for any free port).
+     * @param nbQueries: the expected number of queries (for Version.AUTO, queries are planned as online).
+     */
+    private static void itineraries_server(CompactGraph graph, ResolverOptions options, int port, long nbQueries)
+            throws IOException, InterruptedException {
+        long startTime, endTime;
+        OnlinePathResolver pathResolver;
+
+        startTime = System.currentTimeMillis();
+        pathResolver = createOnlineResolver(graph, options, nbQueries, 1).resolver;
+        endTime = System.currentTimeMillis();
+        System.err.println(String.format("[%s][warming-up] %s ms", pathResolver, endTime - startTime));
+        serve(pathResolver, port);
+    }
+
+    /**
+     * Serves the queries with a resolver restored from a snapshot (see path.Snapshot), without parsing a problem or
+     * building anything.
+     * @param snapshotName: the snapshot file.
+     * @param verify: whether the checksum of the snapshot is verified before serving.
+     * @param cacheCapacity: the capacity of the answer cache (negative for no cache).
+     * @param port: the port to listen on (0 for any free port).
+     * @param metrics: where the latencies are recorded (null for none).
+     */
+    private static void itineraries_server(String snapshotName, boolean verify, int cacheCapacity, int port,
+                                           Metrics metrics)
+            throws IOException, ParseException, InterruptedException {
+        long startTime = System.nanoTime();
+        OnlinePathResolver pathResolver = Snapshot.read(snapshotName, verify);
+        long endTime = System.nanoTime();
+        System.err.println(String.format("[%s][snapshot] %.1f ms", pathResolver, (endTime - startTime) / 1e6));
+        if (cacheCapacity >= 0) {
+            pathResolver = CachingPathResolver.wrap(pathResolver, cacheCapacity);
+        }
+        if (metrics != null) {
+            pathResolver = InstrumentedPathResolver.wrap(pathResolver, metrics);
+        }
+        serve(pathResolver, port);
+    }
+
+    private static void serve(OnlinePathResolver pathResolver, int port) throws IOException, InterruptedException {
+        try (QueryServer server = new QueryServer(pathResolver, port)) {
+            server.start();
+            System.err.println(String.format("[%s][listening] localhost:%s", pathResolver, server.getPort()));
+            server.join();
+        }
+    }
+
+    /**
+     * Usage: java Main [file]
+     *    or: java Main --stream [--version=V1..V5|AUTO] [--chunk=size] [--cache=capacity] file (- for the standard input,
+     *        the answers are written to the standard output, so --workers and --output are rejected)
+     *    or: java Main --pipeline [--version=V1..V5|AUTO] [--chunk=size] [--cache=capacity] [--workers=n] [--output=file]
+     *        file (- for the standard input, the answers are written to itineraries.out by default)
+     *    or: java Main --server [--version=V1|V2|V4|V5|AUTO] [--cache=capacity] [--port=7070] file (its queries are only
+     *        counted)
+     *    or: java Main --check [--seed=1] [--rounds=100] (random graphs, see itineraries_check())
+     *    or: java Main --server --snapshot=file [--no-verify] [--cache=capacity] [--port=7070] (see path.Snapshot, the
+     *        resolver is restored as written, so --version, --off-heap and --relabel are rejected)
+     * V3 answers batches only, so it cannot serve queries or be put behind the cache, and AUTO only plans the others.
+     * The last three modes also take --off-heap (the tables of the resolvers are stored in direct buffers),
+     * --relabel=BFS|DFS|HEAVY_PATH (the spanning forest is renumbered so that nearby nodes share cache lines, except
+     * for V4 which is built on the graph itself),
+     * --metrics=file (phases, retained heap and query latencies, written in JSON if the file name ends with .json, in
+     * CSV otherwise, on exit for the server) and --jmx (the same metrics as an MBean).
+     */
+    public static void main(String[] args) throws IOException, ParseException, InterruptedException {
+        if (args.length > 0 && args[0].equals("--check")) {
+            long seed = 1;
+            int nbRounds = 100;
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].startsWith("--seed=")) {
+                    seed = Long.parseLong(args[i].substring("--seed=".length()));
+                } else if (args[i].startsWith("--rounds=")) {
+                    nbRounds = Integer.parseInt(args[i].substring("--rounds=".length()));
+                } else {
+                    throw new IllegalArgumentException(String.format("Unrecognized option: %s", args[i]));
+                }
+            }
+            itineraries_check(seed, nbRounds);
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("--server")) {
+            Version version = Version.V2;
+            int cacheCapacity = -1;
+            int port = 7070;
+            String fileName = "resources/itineraries.0.in";
+            String snapshotName = null;
+            boolean verify = true;
+            String metricsName = null;
+            boolean jmx = false;
+            IntTable.Storage storage = IntTable.Storage.HEAP;
+            CompactGraph.NodeOrder relabeling = CompactGraph.NodeOrder.INDEX;
+            String resolverOption = null;
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].startsWith("--snapshot=")) {
+                    snapshotName = args[i].substring("--snapshot=".length());
+                } else if (args[i].equals("--no-verify")) {
+                    verify = false;
+                } else if (args[i].startsWith("--metrics=")) {
+                    metricsName = args[i].substring("--metrics=".length());
+                } else if (args[i].equals("--jmx")) {
+                    jmx = true;
+                } else if (args[i].equals("--off-heap")) {
+                    storage = IntTable.Storage.OFF_HEAP;
+                    resolverOption = args[i];
+                } else if (args[i].startsWith("--relabel=")) {
+                    relabeling = CompactGraph.NodeOrder.valueOf(args[i].substring("--relabel=".length()));
+                    resolverOption = args[i];
+                } else if (args[i].startsWith("--version=")) {
+                    version = Version.valueOf(args[i].substring("--version=".length()));
+                    resolverOption = args[i];
+                } else if (args[i].startsWith("--cache=")) {
+                    cacheCapacity = Integer.parseInt(args[i].substring("--cache=".length()));
+                } else if (args[i].startsWith("--port=")) {
+                    port = Integer.parseInt(args[i].substring("--port=".length()));
+                } else {
+                    fileName = args[i];
+                }
+            }
+            if (version == Version.V3) {
+                throw new IllegalArgumentException("--server needs an online resolver, V3 answers batches only.");
+            }
+            if (snapshotName != null && resolverOption != null) {
+                // The resolver, its storage and its numbering are those written to the snapshot
+                throw new IllegalArgumentException(String.format(
+                    "--snapshot restores its resolver as written, %s cannot be applied to it.", resolverOption
+                ));
+            }
+            Metrics metrics = createMetrics(version, metricsName, jmx);
+            if (metricsName != null) {
+                // The server runs until the process is stopped
+                Version serverVersion = version;
+                String serverMetricsName = metricsName;
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        writeMetrics(metrics, serverVersion, serverMetricsName);
+                    } catch (IOException e) {
+                        System.err.println("There was a problem writing the metrics: " + e.getMessage());
+                    }
+                }));
+            }
+            if (snapshotName != null) {
+                itineraries_server(snapshotName, verify, cacheCapacity, port, metrics);
+                return;
+            }
+            long startTime = System.nanoTime();
+            MappedProblem problem = new MappedProblem(fileName);
+            if (metrics != null) {
+                metrics.setPhaseTime(Metrics.Phase.PARSE, System.nanoTime() - startTime);
+            }
+            ResolverOptions options = new ResolverOptions(version, storage, relabeling, cacheCapacity, metrics);
+            itineraries_server(problem.getGraph(), options, port, problem.getNbQueries());
+            return;
+        }
+
+        if (args.length > 0 && (args[0].equals("--stream") || args[0].equals("--pipeline"))) {
+            Version version = Version.V2;
+            int chunkSize = 1 << 16;
+            int nbWorkers = Runtime.getRuntime().availableProcessors();
+            String fileName = "-";
+            String outputName = "itineraries.out";
+            int cacheCapacity = -1;
+            String metricsName = null;
+            boolean jmx = false;
+            IntTable.Storage storage = IntTable.Storage.HEAP;
+            CompactGraph.NodeOrder relabeling = CompactGraph.NodeOrder.INDEX;
+            String pipelineOption = null;
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].startsWith("--metrics=")) {
+                    metricsName = args[i].substring("--metrics=".length());
+                } else if (args[i].equals("--jmx")) {
+                    jmx = true;
+                } else if (args[i].equals("--off-heap")) {
+                    storage = IntTable.Storage.OFF_HEAP;
+                } else if (args[i].startsWith("--relabel=")) {
+                    relabeling = CompactGraph.NodeOrder.valueOf(args[i].substring("--relabel=".length()));
+                } else if (args[i].startsWith("--version=")) {
+                    version = Version.valueOf(args[i].substring("--version=".length()));
+                } else if (args[i].startsWith("--chunk=")) {
+                    chunkSize = Integer.parseInt(args[i].substring("--chunk=".length()));
+                } else if (args[i].startsWith("--workers=")) {
+                    nbWorkers = Integer.parseInt(args[i].substring("--workers=".length()));
+                    pipelineOption = args[i];
+                } else if (args[i].startsWith("--cache=")) {
+                    cacheCapacity = Integer.parseInt(args[i].substring("--cache=".length()));
+                } else if (args[i].startsWith("--output=")) {
+                    outputName = args[i].substring("--output=".length());
+                    pipelineOption = args[i];
+                } else {
+                    fileName = args[i];
+                }
+            }
+            if (args[0].equals("--stream") && pipelineOption != null) {
+                // The streaming mode resolves on the calling thread and writes to the standard output
+                throw new IllegalArgumentException(String.format("%s only applies to --pipeline.", pipelineOption));
+            }
+            if (chunkSize < 1) {
+                throw new IllegalArgumentException("--chunk must hold at least one query.");
+            }
+            if (version == Version.V3 && cacheCapacity >= 0) {
+                throw new IllegalArgumentException("--cache needs an online resolver, V3 answers batches only.");
+            }
+            Metrics metrics = createMetrics(version, metricsName, jmx);
+            ResolverOptions options = new ResolverOptions(version, storage, relabeling, cacheCapacity, metrics);
+            long startTime = System.nanoTime();
+            try (StreamingProblem problem = new StreamingProblem(fileName.equals("-") ? System.in : new FileInputStream(fileName))) {
+                // The parse phase covers the graph section (the queries are parsed along with their resolution)
+                if (metrics != null) {
+                    metrics.setPhaseTime(Metrics.Phase.PARSE, System.nanoTime() - startTime);
+                }
+                if (args[0].equals("--stream")) {
+                    try (Writer output = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII), 1 << 16)) {
+                        itineraries_stream(problem, options, chunkSize, output);
+                    }
+                } else {
+                    try (AnswerWriter output = new AnswerWriter(outputName)) {
+                        itineraries_pipeline(problem, options, chunkSize, nbWorkers, output);
+                    }
+                }
+            }
+            if (metricsName != null) {
+                writeMetrics(metrics, version, metricsName);
+            }
+            return;
+        }
+
+        String fileName = args.length > 0 ? args[0] : "resources/itineraries.0.in";
         Problem problem = new Problem(fileName);
         Graph graph = problem.getGraph();
         Collection<Query> queries = problem.getQueries();
@@ -112,6 +792,10 @@ public class Main {
         System.out.println("------------------------------------------------------------------------------");
         itineraries_v3(mst, queries);
         System.out.println("------------------------------------------------------------------------------");
+        itineraries_v4(mst, queries);
+        System.out.println("------------------------------------------------------------------------------");
+        itineraries_v5(mst, queries);
+        System.out.println("------------------------------------------------------------------------------");
         */
     }
 }
@@ -0,0 +1,189 @@
+package benchmarks;
+
+import graph.CompactGraph;
+import input.MappedProblem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import path.EulerTourPathResolver;
+import path.KruskalPathResolver;
+import path.LCAPathResolver;
+import path.NaivePathResolver;
+import path.OnlinePathResolver;
+import path.PathResolver;
+import path.ResolverPlanner;
+import path.TarjanLCAPathResolver;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class CalibrationBenchmark {
+    @Param({"random-10000", "random-100000", "random-1000000", "path-10000", "path-100000", "path-1000000",
+        "binary-10000", "binary-100000", "binary-1000000"})
+    private String input;
+
+    @Param({"NAIVE", "LCA", "TARJAN", "KRUSKAL", "EULER_TOUR"})
+    private String engine;
+
+    private int[] starts;
+    private int[] ends;
+    private int[] answers;
+    private CompactGraph mst;
+    private PathResolver pathResolver;
+    private OnlinePathResolver onlineResolver;
+    private int position;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ParseException {
+        MappedProblem problem = new MappedProblem(Inputs.resolve(input));
+        starts = new int[problem.getNbQueries()];
+        ends = new int[problem.getNbQueries()];
+        answers = new int[problem.getNbQueries()];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = problem.getQueryStart(i);
+            ends[i] = problem.getQueryEnd(i);
+        }
+        mst = problem.getGraph().getMinimumSpanningForest();
+        pathResolver = build();
+        onlineResolver = pathResolver instanceof OnlinePathResolver ? (OnlinePathResolver) pathResolver : null;
+        position = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pathResolver.close();
+    }
+
+    /**
+     * Cost of the build of the resolver over the minimum spanning tree.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public PathResolver build() {
+        switch (engine) {
+            case "NAIVE": return new NaivePathResolver(mst);
+            case "LCA": return new LCAPathResolver(mst);
+            case "TARJAN": return new TarjanLCAPathResolver(mst);
+            case "KRUSKAL": return new KruskalPathResolver(mst);
+            case "EULER_TOUR": return new EulerTourPathResolver(mst);
+            default: throw new IllegalArgumentException(String.format("Unrecognized engine: %s", engine));
+        }
+    }
+
+    /**
+     * Cost of a single query (the queries of the input are answered in turn), or of a pass over all of them for
+     * TARJAN, which answers batches only.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int query() {
+        if (onlineResolver == null) {
+            pathResolver.getMaximumNoises(starts, ends, answers, null);
+            return answers[0];
+        }
+        int i = position;
+        position = i + 1 == starts.length ? 0 : i + 1;
+        return onlineResolver.getMaximumNoise(starts[i], ends[i]);
+    }
+
+    /**
+     * Command line tool: java -cp target/benchmarks.jar benchmarks.CalibrationBenchmark [JMH options]
+     * Runs the benchmark, then divides each score by the term it multiplies in ResolverPlanner.plan() (e.g. the build
+     * of the LCA resolver by n log(d)), and prints the constants of the cost model, averaged over the inputs. The
+     * inputs have as many queries as nodes, so a Tarjan pass is split evenly between its node and query constants.
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException,
+            ParseException {
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(new CommandLineOptions(args)).include(CalibrationBenchmark.class.getName() + "\\.");
+        Collection<RunResult> results = new Runner(options.build()).run();
+
+        Map<String, double[]> terms = new HashMap<>();
+        Map<String, double[]> constants = new TreeMap<>();
+        for (RunResult result : results) {
+            String input = result.getParams().getParam("input");
+            String engine = result.getParams().getParam("engine");
+            boolean build = result.getParams().getBenchmark().endsWith(".build");
+            double score = result.getPrimaryResult().getScore() * (build ? 1e6 : 1);
+            double[] term = terms.get(input);
+            if (term == null) {
+                term = computeTerms(input);
+                terms.put(input, term);
+            }
+            double nbNodes = term[0];
+            double nbLevels = term[1];
+            double logNodes = term[2];
+            switch (engine + (build ? " build" : " query")) {
+                case "NAIVE build": break;
+                case "NAIVE query": add(constants, "NAIVE_QUERY_PER_NODE", score / nbNodes); break;
+                case "LCA build": add(constants, "LCA_BUILD_PER_NODE_LEVEL", score / (nbNodes * nbLevels)); break;
+                case "LCA query": add(constants, "LCA_QUERY_PER_LEVEL", score / nbLevels); break;
+                case "EULER_TOUR build":
+                    add(constants, "EULER_TOUR_BUILD_PER_NODE_LOG", score / (nbNodes * (logNodes + 1)));
+                    break;
+                case "EULER_TOUR query": add(constants, "EULER_TOUR_QUERY", score); break;
+                case "KRUSKAL build": add(constants, "KRUSKAL_BUILD_PER_NODE_LOG", score / (nbNodes * logNodes)); break;
+                case "KRUSKAL query": add(constants, "KRUSKAL_QUERY", score); break;
+                case "TARJAN build": add(constants, "TARJAN_BUILD_PER_NODE", score / nbNodes); break;
+                case "TARJAN query":
+                    add(constants, "TARJAN_PASS_PER_NODE", score / (2 * nbNodes));
+                    add(constants, "TARJAN_PASS_PER_QUERY", score / (2 * nbNodes));
+                    break;
+                default: throw new IllegalArgumentException(String.format("Unrecognized engine: %s", engine));
+            }
+        }
+        for (Map.Entry<String, double[]> constant : constants.entrySet()) {
+            double[] sum = constant.getValue();
+            System.out.println(String.format("private static final double %s = %.0f; // %d inputs",
+                constant.getKey(), sum[0] / sum[1], (long) sum[1]));
+        }
+    }
+
+    /**
+     * @return the number of nodes n, the number of levels log(d) + 1 and log(n) + 1 of the tree of an input, as in
+     *         ResolverPlanner.plan().
+     */
+    private static double[] computeTerms(String input) throws IOException, ParseException {
+        CompactGraph tree = new MappedProblem(Inputs.resolve(input)).getGraph().getMinimumSpanningForest();
+        double nbNodes = tree.getNbNodes();
+        double depth = new ResolverPlanner(tree).getDepth();
+        return new double[] {nbNodes, log2(depth + 1.0) + 1, log2(nbNodes + 1.0) + 1};
+    }
+
+    private static void add(Map<String, double[]> constants, String name, double value) {
+        double[] sum = constants.computeIfAbsent(name, key -> new double[2]);
+        sum[0] += value;
+        sum[1]++;
+    }
+
+    private static double log2(double value) {
+        return Math.log(value) / Math.log(2);
+    }
+}
@@ -0,0 +1,51 @@
+package benchmarks;
+
+import input.ProblemGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+class Inputs {
+    // Fixed seed, so that every fork (and every run) benchmarks the same synthetic trees
+    private static final long SEED = 42;
+
+    /**
+     * Resolves the input of a benchmark into a problem file.
+     * An input is either the path of a problem file (relative to the root of the repository), or a synthetic tree
+     * given as shape-size (path, star, caterpillar, binary or random), with as many random queries as nodes (prefixed
+     * by shuffled-, the node numbers are randomly permuted, e.g. shuffled-random-1000000; suffixed by +extra, as many
+     * random edges are added to the tree, e.g. random-2000000+4000000 for 6 * 10^6 edges).
+     * @param input: the input parameter of the benchmark.
+     * @return the name of the problem file.
+     * @throws IOException: if a synthetic problem cannot be written.
+     */
+    static String resolve(String input) throws IOException {
+        if (new File(input).exists()) {
+            return input;
+        }
+        int separator = input.lastIndexOf('-');
+        if (separator < 0) {
+            throw new IllegalArgumentException(String.format("Unrecognized input: %s", input));
+        }
+
+        ProblemGenerator generator = new ProblemGenerator(SEED);
+        String shape = input.substring(0, separator);
+        if (shape.startsWith("shuffled-")) {
+            generator.setShuffled(true);
+            shape = shape.substring("shuffled-".length());
+        }
+        generator.setShape(ProblemGenerator.Shape.valueOf(shape.toUpperCase(Locale.ROOT)));
+        String size = input.substring(separator + 1);
+        int extra = size.indexOf('+');
+        if (extra >= 0) {
+            generator.setNbExtraEdges(Integer.parseInt(size.substring(extra + 1)));
+            size = size.substring(0, extra);
+        }
+        generator.setNbNodes(Integer.parseInt(size));
+        File file = File.createTempFile(input + "-", ".in");
+        file.deleteOnExit();
+        generator.write(file.getPath());
+        return file.getPath();
+    }
+}
@@ -0,0 +1,127 @@
+package benchmarks;
+
+import graph.CompactGraph;
+import input.MappedProblem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import path.IncrementalPathResolver;
+import path.LCAPathResolver;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class InsertionBenchmark {
+    // Fixed seed, so that every fork (and every run) inserts the edges in the same order
+    private static final long SEED = 42;
+
+    // Number of insertions of the stream (half the edges of itineraries.2.in)
+    private static final int NB_INSERTIONS = 50000;
+
+    // Number of insertions timed by the rebuild strategy (a rebuild per insertion of the whole stream takes minutes)
+    private static final int NB_REBUILDS = 100;
+
+    @Param({"resources/itineraries.2.in"})
+    private String input;
+
+    private int nbBaseEdges;
+    private int[] sources;
+    private int[] targets;
+    private int[] noises;
+    private CompactGraph baseGraph;
+    private IncrementalPathResolver incremental;
+
+    /**
+     * Shuffles the edges of the input: the first half is the initial graph, the second half the stream of insertions.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ParseException {
+        CompactGraph graph = new MappedProblem(Inputs.resolve(input)).getGraph();
+        int nbEdges = graph.getNbEdges();
+        sources = new int[nbEdges];
+        targets = new int[nbEdges];
+        noises = new int[nbEdges];
+        int i = 0;
+        for (int v = 0; v < graph.getNbNodes(); v++) {
+            for (int slot = graph.getAdjacencyStart(v); slot < graph.getAdjacencyEnd(v); slot++) {
+                int w = graph.getNeighbor(slot);
+                if (v < w) {
+                    sources[i] = graph.getLabel(v);
+                    targets[i] = graph.getLabel(w);
+                    noises[i++] = graph.getNoise(slot);
+                }
+            }
+        }
+        Random random = new Random(SEED);
+        for (i = nbEdges - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            swap(sources, i, j);
+            swap(targets, i, j);
+            swap(noises, i, j);
+        }
+        nbBaseEdges = nbEdges / 2;
+        if (nbEdges - nbBaseEdges < NB_INSERTIONS) {
+            throw new IllegalArgumentException(String.format("%s has fewer than %s edges to insert.", input, NB_INSERTIONS));
+        }
+        baseGraph = new CompactGraph(nbBaseEdges, sources, targets, noises);
+    }
+
+    /**
+     * Loads the spanning forest of the initial graph before each stream of insertions (not timed).
+     */
+    @Setup(Level.Invocation)
+    public void setUpInsertions() {
+        incremental = new IncrementalPathResolver(baseGraph);
+    }
+
+    /**
+     * Cost of an insertion into the link-cut tree of IncrementalPathResolver, over the whole stream.
+     */
+    @Benchmark
+    @OperationsPerInvocation(NB_INSERTIONS)
+    public IncrementalPathResolver incremental() {
+        for (int i = nbBaseEdges; i < nbBaseEdges + NB_INSERTIONS; i++) {
+            incremental.addEdge(sources[i], targets[i], noises[i]);
+        }
+        return incremental;
+    }
+
+    /**
+     * Cost of an insertion followed by a rebuild from scratch (the graph, its spanning forest with Kruskal's algorithm
+     * and LCAPathResolver), over the first NB_REBUILDS insertions of the stream.
+     */
+    @Benchmark
+    @OperationsPerInvocation(NB_REBUILDS)
+    public LCAPathResolver rebuild() {
+        LCAPathResolver resolver = null;
+        for (int i = nbBaseEdges; i < nbBaseEdges + NB_REBUILDS; i++) {
+            CompactGraph graph = new CompactGraph(i + 1, sources, targets, noises);
+            resolver = new LCAPathResolver(graph.getMinimumSpanningForest());
+        }
+        return resolver;
+    }
+
+    private static void swap(int[] values, int i, int j) {
+        int buffer = values[i];
+        values[i] = values[j];
+        values[j] = buffer;
+    }
+}
@@ -0,0 +1,48 @@
+package benchmarks;
+
+import input.MappedProblem;
+import input.Problem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class ParsingBenchmark {
+    @Param({"resources/itineraries.2.in", "random-1000000"})
+    private String input;
+
+    private String fileName;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fileName = Inputs.resolve(input);
+    }
+
+    @Benchmark
+    public Problem problem() throws IOException, ParseException {
+        return new Problem(fileName);
+    }
+
+    @Benchmark
+    public MappedProblem mappedProblem() throws IOException, ParseException {
+        return new MappedProblem(fileName);
+    }
+}
@@ -0,0 +1,93 @@
+package benchmarks;
+
+import graph.CompactGraph;
+import input.MappedProblem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import path.EulerTourPathResolver;
+import path.KruskalPathResolver;
+import path.LCAPathResolver;
+import path.OnlinePathResolver;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class RelabelingBenchmark {
+    @Param({"shuffled-random-1000000", "shuffled-caterpillar-1000000"})
+    private String input;
+
+    @Param({"INDEX", "BFS", "DFS", "HEAVY_PATH"})
+    private String order;
+
+    @Param({"LCA", "Kruskal", "EulerTour"})
+    private String resolver;
+
+    private int[] starts;
+    private int[] ends;
+    private CompactGraph mst;
+    private OnlinePathResolver pathResolver;
+    private int position;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ParseException {
+        MappedProblem problem = new MappedProblem(Inputs.resolve(input));
+        starts = new int[problem.getNbQueries()];
+        ends = new int[problem.getNbQueries()];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = problem.getQueryStart(i);
+            ends[i] = problem.getQueryEnd(i);
+        }
+        mst = problem.getGraph().getMinimumSpanningForest();
+        CompactGraph tree = relabel();
+        switch (resolver) {
+            case "LCA": pathResolver = new LCAPathResolver(tree); break;
+            case "Kruskal": pathResolver = new KruskalPathResolver(tree); break;
+            case "EulerTour": pathResolver = new EulerTourPathResolver(tree); break;
+            default: throw new IllegalArgumentException(String.format("Unrecognized resolver: %s", resolver));
+        }
+        position = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pathResolver.close();
+    }
+
+    /**
+     * Cost of the relabeling itself (a breadth first search, then a depth first search for DFS and HEAVY_PATH).
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public CompactGraph relabel() {
+        return mst.relabel(CompactGraph.NodeOrder.valueOf(order));
+    }
+
+    /**
+     * Cost of a single query (the queries of the input are answered in turn).
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int query() {
+        int i = position;
+        position = i + 1 == starts.length ? 0 : i + 1;
+        return pathResolver.getMaximumNoise(starts[i], ends[i]);
+    }
+}
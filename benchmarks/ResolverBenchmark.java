@@ -0,0 +1,106 @@
+package benchmarks;
+
+import graph.CompactGraph;
+import graph.Graph;
+import input.Problem;
+import input.Query;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import path.LCAPathResolver;
+import path.NaivePathResolver;
+import path.PathResolver;
+import path.TarjanLCAPathResolver;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class ResolverBenchmark {
+    @Param({"resources/itineraries.2.in", "path-100000", "star-100000", "binary-100000", "random-100000",
+        "random-4000000"})
+    private String input;
+
+    @Param({"Naive", "LCA", "Tarjan"})
+    private String resolver;
+
+    // Number of workers of the parallel construction of the LCA resolver (0 for the sequential depth first search)
+    @Param({"0"})
+    private int workers;
+
+    private Graph mst;
+    private CompactGraph compactMst;
+    private ForkJoinPool pool;
+    private Collection<Query> queries;
+    private Query[] queryArray;
+    private PathResolver pathResolver;
+    private int position;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ParseException {
+        Problem problem = new Problem(Inputs.resolve(input));
+        mst = problem.getGraph().getMinimumSpanningTree();
+        compactMst = mst.toCompactGraph();
+        if (workers > 0) {
+            if (!resolver.equals("LCA")) {
+                throw new IllegalArgumentException(String.format("%s is not built in parallel.", resolver));
+            }
+            pool = new ForkJoinPool(workers);
+        }
+        queries = problem.getQueries();
+        queryArray = queries.toArray(new Query[0]);
+        pathResolver = construct();
+        position = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Warm-up of the resolver (its construction over the minimum spanning tree, already converted to a CompactGraph for
+     * the LCA resolver, which is built on a pool of workers if workers is positive).
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public PathResolver construct() {
+        switch (resolver) {
+            case "Naive": return new NaivePathResolver(mst);
+            case "LCA": return workers > 0 ? new LCAPathResolver(compactMst, pool) : new LCAPathResolver(compactMst);
+            case "Tarjan": return new TarjanLCAPathResolver(mst, queries);
+            default: throw new IllegalArgumentException(String.format("Unrecognized resolver: %s", resolver));
+        }
+    }
+
+    /**
+     * Cost of a single query (the queries of the input are answered in turn).
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int query() {
+        Query query = queryArray[position];
+        position = position + 1 == queryArray.length ? 0 : position + 1;
+        return pathResolver.getMaximumNoise(query);
+    }
+}
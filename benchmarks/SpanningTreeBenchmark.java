@@ -0,0 +1,74 @@
+package benchmarks;
+
+import graph.CompactGraph;
+import graph.Graph;
+import input.Problem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SpanningTreeBenchmark {
+    @Param({"resources/itineraries.2.in", "random-1000000", "random-2000000+4000000"})
+    private String input;
+
+    // Number of workers of the pool of Boruvka's algorithm (the other benchmarks are sequential)
+    @Param({"1"})
+    private int workers;
+
+    private Graph graph;
+    private CompactGraph compactGraph;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ParseException {
+        graph = new Problem(Inputs.resolve(input)).getGraph();
+        compactGraph = graph.toCompactGraph();
+        pool = new ForkJoinPool(workers);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public Graph prim() {
+        return graph.getMinimumSpanningTree();
+    }
+
+    @Benchmark
+    public CompactGraph compactPrim() {
+        return compactGraph.getMinimumSpanningTree();
+    }
+
+    @Benchmark
+    public CompactGraph kruskal() {
+        return compactGraph.getMinimumSpanningForest();
+    }
+
+    @Benchmark
+    public CompactGraph boruvka() {
+        return compactGraph.getMinimumSpanningForest(pool);
+    }
+}
@@ -0,0 +1,763 @@
+package graph;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class CompactGraph {
+    public enum NodeOrder {
+        INDEX, BFS, DFS, HEAVY_PATH;
+    }
+
+    // Largest number of slots per node of the table from node indexes to dense ids (sparser indexes are searched)
+    private static final int MAX_SLOTS_PER_NODE = 4;
+
+    // Layouts of the translation from node indexes to dense ids in a snapshot
+    private static final int TABLE = 0;
+    private static final int SORTED_LABELS = 1;
+    private static final int SORTED_INDEXES = 2;
+
+    private int totalNoise;
+    private int nbEdges;
+    private int[] labels;
+    private int[] ids;
+    private int[] indexes;
+    private int[] indexIds;
+    private int[] offsets;
+    private int[] neighbors;
+    private int[] noises;
+    private int[] components;
+    private int nbComponents;
+
+    /**
+     * Creates a compressed sparse row (CSR) representation of a graph.
+     * Nodes are renamed to dense ids 0 .. n-1 (in increasing order of their index) and the adjacency of node v is
+     * stored in the slots offsets[v] .. offsets[v+1]-1 of the neighbors and noises arrays.
+     * The private attributes below replace the HashMap<Node, List<Edge>> of Graph:
+     * <li> - labels: the index of the node behind each dense id.
+     * <li> - ids: the dense id behind each node index (-1 if the index is not part of the graph), or null if the
+     *        largest index exceeds MAX_SLOTS_PER_NODE times the number of nodes (the table would mostly hold -1).
+     * <li> - indexes: null unless ids is, the node indexes in increasing order (binary searched by getId()).
+     * <li> - indexIds: the dense id behind each entry of indexes, or null if the k-th index has dense id k (indexes
+     *        is then labels itself, until the graph is relabeled).
+     * <li> - offsets: the first adjacency slot of each dense id (n + 1 entries).
+     * <li> - neighbors: the dense id at the other end of each adjacency slot (2m entries).
+     * <li> - noises: the noise of the edge behind each adjacency slot (2m entries).
+     * <li> - components: the connected component of each dense id (components are numbered 0 .. c-1).
+     * @param nbEdges: number of edges to be read from the arrays below.
+     * @param sources: index of one of the vertices of each edge.
+     * @param targets: index of the other vertex of each edge.
+     * @param noises: the noise assigned to each edge.
+     */
+    public CompactGraph(int nbEdges, int[] sources, int[] targets, int[] noises) {
+        int maxIndex = -1;
+        for (int i = 0; i < nbEdges; i++) {
+            if (sources[i] == targets[i]) {
+                throw new RuntimeException("An edge must have two different nodes.");
+            }
+            if (sources[i] < 0 || targets[i] < 0) {
+                throw new IllegalArgumentException("Node indexes must be non-negative.");
+            }
+            maxIndex = Math.max(maxIndex, Math.max(sources[i], targets[i]));
+        }
+
+        // Assign dense ids in increasing order of index
+        // Complexity: O(m + maxIndex) through a table over the indexes, O(m log(m)) through a sort if they are sparse
+        int[] denseSources = new int[nbEdges];
+        int[] denseTargets = new int[nbEdges];
+        if (maxIndex < MAX_SLOTS_PER_NODE * 2L * nbEdges) {
+            int[] ids = new int[maxIndex + 1];
+            for (int i = 0; i < nbEdges; i++) {
+                ids[sources[i]] = 1;
+                ids[targets[i]] = 1;
+            }
+            int nbNodes = 0;
+            for (int index = 0; index <= maxIndex; index++) {
+                ids[index] = ids[index] == 0 ? -1 : nbNodes++;
+            }
+            labels = new int[nbNodes];
+            for (int index = 0; index <= maxIndex; index++) {
+                if (ids[index] >= 0) {
+                    labels[ids[index]] = index;
+                }
+            }
+            for (int i = 0; i < nbEdges; i++) {
+                denseSources[i] = ids[sources[i]];
+                denseTargets[i] = ids[targets[i]];
+            }
+            // The table is kept only if the nodes fill enough of it
+            if (maxIndex < MAX_SLOTS_PER_NODE * (long) nbNodes) {
+                this.ids = ids;
+            } else {
+                indexes = labels;
+            }
+        } else {
+            int[] endpoints = Arrays.copyOf(sources, 2 * nbEdges);
+            System.arraycopy(targets, 0, endpoints, nbEdges, nbEdges);
+            Arrays.sort(endpoints);
+            int nbNodes = 0;
+            for (int i = 0; i < endpoints.length; i++) {
+                if (i == 0 || endpoints[i] != endpoints[i - 1]) {
+                    endpoints[nbNodes++] = endpoints[i];
+                }
+            }
+            labels = Arrays.copyOf(endpoints, nbNodes);
+            indexes = labels;
+            for (int i = 0; i < nbEdges; i++) {
+                denseSources[i] = Arrays.binarySearch(labels, sources[i]);
+                denseTargets[i] = Arrays.binarySearch(labels, targets[i]);
+            }
+        }
+        build(labels, nbEdges, denseSources, denseTargets, noises);
+    }
+
+    /**
+     * Creates a graph over the same dense ids as an existing one (used to build spanning trees and forests).
+     * Note: the sources and targets arrays must already contain dense ids.
+     */
+    CompactGraph(CompactGraph graph, int nbEdges, int[] sources, int[] targets, int[] noises) {
+        ids = graph.ids;
+        indexes = graph.indexes;
+        indexIds = graph.indexIds;
+        build(graph.labels, nbEdges, sources, targets, noises);
+    }
+
+    private CompactGraph() {
+    }
+
+    /**
+     * Restores a graph written by write(), without building it again (its arrays are copied onto the heap).
+     * Complexity: O(n + m) (a copy of the arrays).
+     * @param reader: the snapshot, positioned at the graph.
+     * @return the graph.
+     * @throws ParseException: if the arrays are inconsistent.
+     */
+    public static CompactGraph read(SnapshotReader reader) throws IOException, ParseException {
+        CompactGraph graph = new CompactGraph();
+        graph.nbEdges = reader.readInt();
+        graph.totalNoise = reader.readInt();
+        graph.nbComponents = reader.readInt();
+        graph.labels = reader.readInts();
+        int layout = reader.readInt();
+        switch (layout) {
+            case TABLE: graph.ids = reader.readInts(); break;
+            case SORTED_LABELS: graph.indexes = graph.labels; break;
+            case SORTED_INDEXES: graph.indexes = reader.readInts(); graph.indexIds = reader.readInts(); break;
+            default: throw new ParseException(String.format("Unrecognized layout of the node indexes: %s", layout), 0);
+        }
+        graph.offsets = reader.readInts();
+        graph.neighbors = reader.readInts();
+        graph.noises = reader.readInts();
+        graph.components = reader.readInts();
+        int nbNodes = graph.labels.length;
+        if (graph.offsets.length != nbNodes + 1 || graph.components.length != nbNodes
+                || graph.indexes != null && graph.indexes.length != nbNodes
+                || graph.indexIds != null && graph.indexIds.length != nbNodes
+                || graph.neighbors.length != 2 * graph.nbEdges || graph.noises.length != 2 * graph.nbEdges) {
+            throw new ParseException("The snapshot holds an inconsistent graph.", 0);
+        }
+        return graph;
+    }
+
+    /**
+     * Writes the arrays of the graph, to be restored by read().
+     * @param writer: the snapshot being written.
+     */
+    public void write(SnapshotWriter writer) throws IOException {
+        writer.writeInt(nbEdges);
+        writer.writeInt(totalNoise);
+        writer.writeInt(nbComponents);
+        writer.writeInts(labels);
+        if (ids != null) {
+            writer.writeInt(TABLE);
+            writer.writeInts(ids);
+        } else if (indexIds == null) {
+            writer.writeInt(SORTED_LABELS);
+        } else {
+            writer.writeInt(SORTED_INDEXES);
+            writer.writeInts(indexes);
+            writer.writeInts(indexIds);
+        }
+        writer.writeInts(offsets);
+        writer.writeInts(neighbors);
+        writer.writeInts(noises);
+        writer.writeInts(components);
+    }
+
+    private void build(int[] labels, int nbEdges, int[] sources, int[] targets, int[] edgeNoises) {
+        buildAdjacency(labels, nbEdges, sources, targets, edgeNoises);
+        numberComponents(sources, targets);
+    }
+
+    private void buildAdjacency(int[] labels, int nbEdges, int[] sources, int[] targets, int[] edgeNoises) {
+        this.labels = labels;
+        this.nbEdges = nbEdges;
+        totalNoise = 0;
+
+        // Count degrees and turn them into offsets through a prefix sum
+        // Complexity: O(n + m)
+        int nbNodes = labels.length;
+        offsets = new int[nbNodes + 1];
+        for (int i = 0; i < nbEdges; i++) {
+            offsets[sources[i] + 1]++;
+            offsets[targets[i] + 1]++;
+        }
+        for (int v = 0; v < nbNodes; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        // Fill both directions of every edge
+        neighbors = new int[2 * nbEdges];
+        noises = new int[2 * nbEdges];
+        int[] next = Arrays.copyOf(offsets, nbNodes);
+        for (int i = 0; i < nbEdges; i++) {
+            int source = sources[i];
+            int target = targets[i];
+            totalNoise += edgeNoises[i];
+            neighbors[next[source]] = target;
+            noises[next[source]++] = edgeNoises[i];
+            neighbors[next[target]] = source;
+            noises[next[target]++] = edgeNoises[i];
+        }
+    }
+
+    private void numberComponents(int[] sources, int[] targets) {
+        // Number the connected components in order of their smallest dense id
+        // Complexity: O(n + m alpha(n))
+        int nbNodes = labels.length;
+        UnionFind unionFind = new UnionFind(nbNodes);
+        for (int i = 0; i < nbEdges; i++) {
+            unionFind.union(sources[i], targets[i]);
+        }
+        // The root of a set may have a larger dense id than some of its nodes, so roots are numbered on first sight
+        int[] rootComponents = new int[nbNodes];
+        Arrays.fill(rootComponents, -1);
+        components = new int[nbNodes];
+        nbComponents = 0;
+        for (int v = 0; v < nbNodes; v++) {
+            int root = unionFind.find(v);
+            if (rootComponents[root] < 0) {
+                rootComponents[root] = nbComponents++;
+            }
+            components[v] = rootComponents[root];
+        }
+    }
+
+    public int getNbNodes() {
+        return labels.length;
+    }
+
+    public int getNbEdges() {
+        return nbEdges;
+    }
+
+    public int getTotalNoise() {
+        return totalNoise;
+    }
+
+    public int getNbComponents() {
+        return nbComponents;
+    }
+
+    public int getComponent(int id) {
+        return components[id];
+    }
+
+    public boolean isConnected(int id1, int id2) {
+        return components[id1] == components[id2];
+    }
+
+    public int getLabel(int id) {
+        return labels[id];
+    }
+
+    /**
+     * Complexity: O(1) through the table of ids, O(log(n)) through a binary search if the indexes are sparse.
+     * @param index: the index of a node of the graph.
+     * @return its dense id.
+     */
+    public int getId(int index) {
+        int id;
+        if (ids != null) {
+            id = index >= 0 && index < ids.length ? ids[index] : -1;
+        } else {
+            int position = Arrays.binarySearch(indexes, index);
+            id = position < 0 ? -1 : indexIds == null ? position : indexIds[position];
+        }
+        if (id < 0) {
+            throw new IllegalArgumentException(String.format("Graph does not contain %s", new Node(index)));
+        }
+        return id;
+    }
+
+    public int getId(Node node) {
+        return getId(node.getIndex());
+    }
+
+    public Node getNode(int id) {
+        return new Node(labels[id]);
+    }
+
+    public int getAdjacencyStart(int id) {
+        return offsets[id];
+    }
+
+    public int getAdjacencyEnd(int id) {
+        return offsets[id + 1];
+    }
+
+    public int getNeighbor(int slot) {
+        return neighbors[slot];
+    }
+
+    public int getNoise(int slot) {
+        return noises[slot];
+    }
+
+    /**
+     * Finds the node whose adjacency contains the given slot.
+     * Complexity: O(log(n)) through a binary search over the offsets.
+     * @param slot: an adjacency slot.
+     * @return the dense id of the node that owns the slot.
+     */
+    public int getOwner(int slot) {
+        int low = 0;
+        int high = labels.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (offsets[middle] <= slot) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Renumbers the dense ids so that the nodes close in the graph are close in memory (the node indexes, hence the
+     * answers of the resolvers, are unchanged, since getId() and getLabel() translate them transparently):
+     * <li> - INDEX: in increasing order of index (the order of the constructor, this graph is returned as is).
+     * <li> - BFS: in breadth first order from the first node of each component, so each level is contiguous.
+     * <li> - DFS: in depth first preorder, so each subtree is contiguous and a node often follows its parent.
+     * <li> - HEAVY_PATH: in depth first preorder where the child with the largest subtree is visited first, so every
+     *        heavy path is contiguous (walking up from a node crosses O(log(n)) light edges, each a jump in memory).
+     * The orders are computed over the breadth first spanning forest (the graph itself for a spanning forest), each
+     * component keeps its first node as its first id, and the components keep their order.
+     * Complexity: O(n + m).
+     * @param order: the order of the new dense ids.
+     * @return the graph over the new dense ids.
+     */
+    public CompactGraph relabel(NodeOrder order) {
+        if (order == NodeOrder.INDEX) {
+            return this;
+        }
+        int nbNodes = labels.length;
+        int[] newIds = computeOrder(order);
+
+        // Translate the labels, the index to id mapping and every edge (once, from its smaller old dense id)
+        int[] oldIds = new int[nbNodes];
+        int[] newLabels = new int[nbNodes];
+        for (int v = 0; v < nbNodes; v++) {
+            oldIds[newIds[v]] = v;
+            newLabels[newIds[v]] = labels[v];
+        }
+        CompactGraph graph = new CompactGraph();
+        if (ids != null) {
+            graph.ids = new int[ids.length];
+            for (int index = 0; index < ids.length; index++) {
+                graph.ids[index] = ids[index] < 0 ? -1 : newIds[ids[index]];
+            }
+        } else {
+            graph.indexes = indexes;
+            graph.indexIds = new int[nbNodes];
+            for (int position = 0; position < nbNodes; position++) {
+                graph.indexIds[position] = newIds[indexIds == null ? position : indexIds[position]];
+            }
+        }
+        int[] sources = new int[nbEdges];
+        int[] targets = new int[nbEdges];
+        int[] edgeNoises = new int[nbEdges];
+        int i = 0;
+        for (int newId = 0; newId < nbNodes; newId++) {
+            int v = oldIds[newId];
+            for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+                if (v < neighbors[slot]) {
+                    sources[i] = newId;
+                    targets[i] = newIds[neighbors[slot]];
+                    edgeNoises[i++] = noises[slot];
+                }
+            }
+        }
+        // Each component keeps its number: the components keep their order, hence the order of their smallest id
+        graph.buildAdjacency(newLabels, nbEdges, sources, targets, edgeNoises);
+        graph.components = new int[nbNodes];
+        for (int newId = 0; newId < nbNodes; newId++) {
+            graph.components[newId] = components[oldIds[newId]];
+        }
+        graph.nbComponents = nbComponents;
+        return graph;
+    }
+
+    /**
+     * @return the new dense id of each dense id (see relabel()).
+     */
+    private int[] computeOrder(NodeOrder order) {
+        int nbNodes = labels.length;
+        int[] newIds = new int[nbNodes];
+
+        // Breadth first search from the first node of each component (the parents form the spanning forest)
+        // Complexity: O(n + m)
+        int[] parents = new int[nbNodes];
+        int[] queue = new int[nbNodes];
+        Arrays.fill(parents, -2);
+        int tail = 0;
+        for (int root = 0; root < nbNodes; root++) {
+            if (parents[root] != -2) {
+                continue;
+            }
+            parents[root] = -1;
+            int head = tail;
+            queue[tail++] = root;
+            while (head < tail) {
+                int currentNode = queue[head++];
+                for (int slot = offsets[currentNode]; slot < offsets[currentNode + 1]; slot++) {
+                    int nextNode = neighbors[slot];
+                    if (parents[nextNode] == -2) {
+                        parents[nextNode] = currentNode;
+                        queue[tail++] = nextNode;
+                    }
+                }
+            }
+        }
+        if (order == NodeOrder.BFS) {
+            for (int position = 0; position < nbNodes; position++) {
+                newIds[queue[position]] = position;
+            }
+            return newIds;
+        }
+
+        // Subtree sizes, accumulated from the deepest nodes up (only for the heavy path order)
+        int[] sizes = new int[nbNodes];
+        if (order == NodeOrder.HEAVY_PATH) {
+            for (int position = nbNodes - 1; position >= 0; position--) {
+                int v = queue[position];
+                sizes[v]++;
+                if (parents[v] >= 0) {
+                    sizes[parents[v]] += sizes[v];
+                }
+            }
+        }
+
+        // Depth first preorder over the spanning forest: the children are pushed in reverse order of adjacency, the
+        // heavy one last, so that it is visited right after its parent
+        // Complexity: O(n + m)
+        int[] stack = queue; // The queue is no longer needed
+        boolean[] pushed = new boolean[nbNodes];
+        int time = 0;
+        for (int root = 0; root < nbNodes; root++) {
+            if (pushed[root]) {
+                continue;
+            }
+            int size = 0;
+            stack[size++] = root;
+            pushed[root] = true;
+            while (size > 0) {
+                int currentNode = stack[--size];
+                newIds[currentNode] = time++;
+                int heavyChild = -1;
+                for (int slot = offsets[currentNode]; slot < offsets[currentNode + 1] && order == NodeOrder.HEAVY_PATH; slot++) {
+                    int child = neighbors[slot];
+                    if (parents[child] == currentNode && (heavyChild < 0 || sizes[child] > sizes[heavyChild])) {
+                        heavyChild = child;
+                    }
+                }
+                for (int slot = offsets[currentNode + 1] - 1; slot >= offsets[currentNode]; slot--) {
+                    int child = neighbors[slot];
+                    if (parents[child] == currentNode && !pushed[child] && child != heavyChild) {
+                        pushed[child] = true;
+                        stack[size++] = child;
+                    }
+                }
+                if (heavyChild >= 0) {
+                    pushed[heavyChild] = true;
+                    stack[size++] = heavyChild;
+                }
+            }
+        }
+        return newIds;
+    }
+
+    /**
+     * Estimates the heap used by this instance (object headers and array payloads).
+     * @return the estimated number of bytes.
+     */
+    public long getFootprint() {
+        long arrays = 4L * (labels.length + offsets.length + neighbors.length + noises.length + components.length);
+        int nbArrays = 5;
+        if (ids != null) {
+            arrays += 4L * ids.length;
+            nbArrays++;
+        } else if (indexIds != null) {
+            // Until the graph is relabeled, the sorted indexes are the labels themselves
+            arrays += 4L * (indexes.length + indexIds.length);
+            nbArrays += 2;
+        }
+        return 48 + nbArrays * 16 + arrays;
+    }
+
+    /**
+     * Computes a minimum spanning tree using Prim's algorithm on primitive arrays.
+     * Each candidate edge is packed in a long (noise in the high bits, adjacency slot in the low bits).
+     * @return the minimum spanning tree of this instance of CompactGraph (over the same dense ids).
+     */
+    public CompactGraph getMinimumSpanningTree() {
+        int nbNodes = labels.length;
+        int[] sources = new int[Math.max(nbNodes - 1, 0)];
+        int[] targets = new int[sources.length];
+        int[] treeNoises = new int[sources.length];
+        int nbTreeEdges = 0;
+
+        if (nbNodes > 0) {
+            // Choose a starting point
+            int startNode = 0;
+            boolean[] visited = new boolean[nbNodes];
+            visited[startNode] = true;
+
+            LongPriorityQueue edgeQueue = new LongPriorityQueue(nbNodes);
+            for (int slot = offsets[startNode]; slot < offsets[startNode + 1]; slot++) {
+                edgeQueue.add(pack(noises[slot], slot));
+            }
+
+            // Run algorithm
+            while (!edgeQueue.isEmpty()) {
+                int slot = (int) edgeQueue.poll();
+                int nonVisitedNode = neighbors[slot];
+
+                // Add edge if it is in the boundary of visited/non-visited nodes
+                if (!visited[nonVisitedNode]) {
+                    visited[nonVisitedNode] = true;
+                    sources[nbTreeEdges] = getOwner(slot);
+                    targets[nbTreeEdges] = nonVisitedNode;
+                    treeNoises[nbTreeEdges++] = noises[slot];
+                    for (int next = offsets[nonVisitedNode]; next < offsets[nonVisitedNode + 1]; next++) {
+                        if (!visited[neighbors[next]]) {
+                            edgeQueue.add(pack(noises[next], next));
+                        }
+                    }
+                }
+            }
+        }
+        return new CompactGraph(this, nbTreeEdges, sources, targets, treeNoises);
+    }
+
+    /**
+     * Lists every edge once (from the adjacency of its smaller dense id) in increasing order of noise.
+     * Each edge is packed in a long (noise in the high bits, edge number in the low bits) and the packed edges are
+     * sorted with a parallel primitive sort.
+     * Complexity: O(m log(m)).
+     * @return the edges sorted by noise, each packed as (source << 32 | adjacency slot).
+     */
+    public long[] getEdgesByNoise() {
+        // Pack every edge once (from the adjacency of its smaller dense id)
+        int[] edgeSources = new int[nbEdges];
+        int[] edgeSlots = new int[nbEdges];
+        long[] edges = new long[nbEdges];
+        int i = 0;
+        for (int v = 0; v < labels.length; v++) {
+            for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+                if (v < neighbors[slot]) {
+                    edgeSources[i] = v;
+                    edgeSlots[i] = slot;
+                    edges[i] = pack(noises[slot], i);
+                    i++;
+                }
+            }
+        }
+        Arrays.parallelSort(edges);
+
+        // Replace the sort keys by the edges themselves
+        for (i = 0; i < nbEdges; i++) {
+            int edge = (int) edges[i];
+            edges[i] = pack(edgeSources[edge], edgeSlots[edge]);
+        }
+        return edges;
+    }
+
+    /**
+     * Computes a minimum spanning forest using Kruskal's algorithm on primitive arrays.
+     * Unlike Prim's algorithm started from a single node, every connected component gets its own spanning tree.
+     * Complexity: O(m log(m)) for the sort and O(m alpha(n)) for the union-find pass.
+     * @return the minimum spanning forest of this instance of CompactGraph (over the same dense ids and components).
+     */
+    public CompactGraph getMinimumSpanningForest() {
+        long[] edges = getEdgesByNoise();
+
+        // Run algorithm (stop as soon as every component is spanned)
+        int nbForestEdges = labels.length - nbComponents;
+        int[] sources = new int[nbForestEdges];
+        int[] targets = new int[nbForestEdges];
+        int[] forestNoises = new int[nbForestEdges];
+        UnionFind unionFind = new UnionFind(labels.length);
+        int nbAdded = 0;
+        for (int i = 0; i < edges.length && nbAdded < nbForestEdges; i++) {
+            int source = (int) (edges[i] >>> 32);
+            int slot = (int) edges[i];
+            if (unionFind.union(source, neighbors[slot])) {
+                sources[nbAdded] = source;
+                targets[nbAdded] = neighbors[slot];
+                forestNoises[nbAdded++] = noises[slot];
+            }
+        }
+        return new CompactGraph(this, nbAdded, sources, targets, forestNoises);
+    }
+
+    /**
+     * Computes a minimum spanning forest using Boruvka's algorithm, with the work of each round spread over a pool.
+     * Each round, every node looks for its cheapest edge leaving its component and the cheapest of them is kept for the
+     * component (through a compare-and-set); the kept edges are then merged in parallel through a concurrent union-find,
+     * which drops the edges chosen by both of their components. The number of components at least halves every round.
+     * Ties are broken by the dense ids of the edge's nodes, so that the chosen edges never close a cycle.
+     * Note: the forest has the same total noise as the ones computed by Prim's and Kruskal's algorithms.
+     * Complexity: O((n + m) log(n)) work over at most log(n) rounds.
+     * @param pool: the pool running the rounds.
+     * @return the minimum spanning forest of this instance of CompactGraph (over the same dense ids and components).
+     */
+    public CompactGraph getMinimumSpanningForest(ForkJoinPool pool) {
+        int nbNodes = labels.length;
+        int nbForestEdges = nbNodes - nbComponents;
+        int[] sources = new int[nbForestEdges];
+        int[] targets = new int[nbForestEdges];
+        int[] forestNoises = new int[nbForestEdges];
+        int nbAdded = 0;
+
+        // The components are identified by the root of their set (roots lists the components left)
+        ConcurrentUnionFind unionFind = new ConcurrentUnionFind(nbNodes);
+        int[] roots = new int[nbNodes];
+        int[] nodeComponents = new int[nbNodes];
+        for (int v = 0; v < nbNodes; v++) {
+            roots[v] = v;
+            nodeComponents[v] = v;
+        }
+        int nbRoots = nbNodes;
+
+        // The cheapest slot leaving the component of each node, and the node holding the cheapest one of each component
+        int[] cheapestSlots = new int[nbNodes];
+        AtomicIntegerArray cheapestNodes = new AtomicIntegerArray(nbNodes);
+        int[] mergedNodes = new int[nbNodes];
+        while (nbAdded < nbForestEdges) {
+            int[] currentRoots = roots;
+            RangeTask.invoke(pool, (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    cheapestNodes.set(currentRoots[i], -1);
+                }
+            }, 0, nbRoots);
+
+            // Find the cheapest edge leaving each component
+            RangeTask.invoke(pool, (from, to) -> {
+                for (int v = from; v < to; v++) {
+                    int component = nodeComponents[v];
+                    int cheapestSlot = -1;
+                    for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+                        if (nodeComponents[neighbors[slot]] != component
+                                && (cheapestSlot < 0 || isCheaper(v, slot, v, cheapestSlot))) {
+                            cheapestSlot = slot;
+                        }
+                    }
+                    cheapestSlots[v] = cheapestSlot;
+                    if (cheapestSlot < 0) {
+                        continue;
+                    }
+                    int cheapestNode = cheapestNodes.get(component);
+                    while ((cheapestNode < 0 || isCheaper(v, cheapestSlot, cheapestNode, cheapestSlots[cheapestNode]))
+                            && !cheapestNodes.compareAndSet(component, cheapestNode, v)) {
+                        cheapestNode = cheapestNodes.get(component);
+                    }
+                }
+            }, 0, nbNodes);
+
+            // Merge the components along their cheapest edges (an edge chosen twice is only merged once)
+            int nbCurrentRoots = nbRoots;
+            RangeTask.invoke(pool, (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    int v = cheapestNodes.get(currentRoots[i]);
+                    mergedNodes[i] = v >= 0 && unionFind.union(v, neighbors[cheapestSlots[v]]) ? v : -1;
+                }
+            }, 0, nbCurrentRoots);
+            int nbMerged = 0;
+            for (int i = 0; i < nbCurrentRoots; i++) {
+                int v = mergedNodes[i];
+                if (v >= 0) {
+                    sources[nbAdded] = v;
+                    targets[nbAdded] = neighbors[cheapestSlots[v]];
+                    forestNoises[nbAdded++] = noises[cheapestSlots[v]];
+                    nbMerged++;
+                }
+            }
+            if (nbMerged == 0) {
+                break;
+            }
+
+            // Contract the components (the sets are not modified anymore during this round)
+            RangeTask.invoke(pool, (from, to) -> {
+                for (int v = from; v < to; v++) {
+                    nodeComponents[v] = unionFind.find(v);
+                }
+            }, 0, nbNodes);
+            nbRoots = 0;
+            for (int i = 0; i < nbCurrentRoots; i++) {
+                if (nodeComponents[currentRoots[i]] == currentRoots[i]) {
+                    roots[nbRoots++] = currentRoots[i];
+                }
+            }
+        }
+        return new CompactGraph(this, nbAdded, sources, targets, forestNoises);
+    }
+
+    /**
+     * Compares two edges by noise, then by the dense ids of their nodes (a strict order on edges, parallel edges aside).
+     * @return true if the edge behind slot1 (in the adjacency of node1) is cheaper than the one behind slot2.
+     */
+    private boolean isCheaper(int node1, int slot1, int node2, int slot2) {
+        if (noises[slot1] != noises[slot2]) {
+            return noises[slot1] < noises[slot2];
+        }
+        int min1 = Math.min(node1, neighbors[slot1]);
+        int min2 = Math.min(node2, neighbors[slot2]);
+        if (min1 != min2) {
+            return min1 < min2;
+        }
+        return Math.max(node1, neighbors[slot1]) < Math.max(node2, neighbors[slot2]);
+    }
+
+    private static long pack(int noise, int value) {
+        return ((long) noise << 32) | value;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        // Include total noise
+        builder.append("Total noise: ");
+        builder.append(totalNoise);
+        builder.append("\n");
+
+        // Include adjacent edges
+        builder.append("Adjacent edges:\n");
+        for (int id = 0; id < labels.length; id++) {
+            builder.append(getNode(id));
+            builder.append(" -> [");
+            for (int slot = offsets[id]; slot < offsets[id + 1]; slot++) {
+                if (slot > offsets[id]) {
+                    builder.append(", ");
+                }
+                builder.append(new Edge(getNode(id), getNode(neighbors[slot]), noises[slot]));
+            }
+            builder.append("]\n");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,62 @@
+package graph;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class ConcurrentUnionFind {
+    private final AtomicIntegerArray parents;
+
+    /**
+     * Creates a lock-free union-find (disjoint set) data structure over the dense ids 0 .. n-1.
+     * Roots are linked with a compare-and-set, so that any number of threads may merge and look up sets concurrently.
+     * <li> - parents: the parent of each id (roots are their own parent).
+     * Note: there are no ranks (they cannot be updated atomically with the link), the larger root is always linked
+     * under the smaller one instead, which also makes the root of a set deterministic.
+     * @param nbNodes: number of ids.
+     */
+    public ConcurrentUnionFind(int nbNodes) {
+        parents = new AtomicIntegerArray(nbNodes);
+        for (int i = 0; i < nbNodes; i++) {
+            parents.set(i, i);
+        }
+    }
+
+    /**
+     * Find operation with path halving (a failed compare-and-set only means another thread shortened the path first).
+     * @param id: the id whose root is to be computed.
+     * @return the root of id's disjoint set (it may change if other threads are merging sets).
+     */
+    public int find(int id) {
+        int parent = parents.get(id);
+        while (parent != id) {
+            int grandParent = parents.get(parent);
+            parents.compareAndSet(id, parent, grandParent);
+            id = grandParent;
+            parent = parents.get(id);
+        }
+        return id;
+    }
+
+    /**
+     * Union operation (retried until both ids are found under the same root or a root is linked).
+     * @param id1: an id of the first set.
+     * @param id2: an id of the second set.
+     * @return true if the sets were disjoint (and are now merged by this call), false otherwise.
+     */
+    public boolean union(int id1, int id2) {
+        while (true) {
+            int root1 = find(id1);
+            int root2 = find(id2);
+            if (root1 == root2) {
+                return false;
+            }
+            if (root1 < root2) {
+                int buffer = root1;
+                root1 = root2;
+                root2 = buffer;
+            }
+            if (parents.compareAndSet(root1, root1, root2)) {
+                return true;
+            }
+        }
+    }
+}
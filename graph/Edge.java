@@ -42,6 +42,14 @@ public class Edge {
         }
     }
 
+    public Node getSource() {
+        return source;
+    }
+
+    public Node getTarget() {
+        return target;
+    }
+
     public Collection<Node> getNodes() {
         Collection<Node> nodes = new LinkedList<>();
         nodes.add(source);
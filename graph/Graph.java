@@ -50,6 +50,34 @@ public class Graph {
         adjacentEdges.putIfAbsent(node, new LinkedList<>());
     }
 
+    /**
+     * Converts this graph into its compressed sparse row representation.
+     * Complexity: O(n + m) (every edge is visited from both of its nodes but emitted only from its source).
+     * @return a CompactGraph with the same nodes, edges and noises.
+     */
+    public CompactGraph toCompactGraph() {
+        int nbEdges = 0;
+        for (List<Edge> edges : adjacentEdges.values()) {
+            nbEdges += edges.size();
+        }
+        nbEdges /= 2;
+
+        int[] sources = new int[nbEdges];
+        int[] targets = new int[nbEdges];
+        int[] noises = new int[nbEdges];
+        int i = 0;
+        for (Node node : adjacentEdges.keySet()) {
+            for (Edge edge : adjacentEdges.get(node)) {
+                if (edge.getSource().equals(node)) {
+                    sources[i] = edge.getSource().getIndex();
+                    targets[i] = edge.getTarget().getIndex();
+                    noises[i++] = edge.getNoise();
+                }
+            }
+        }
+        return new CompactGraph(nbEdges, sources, targets, noises);
+    }
+
     /**
      * Computes a minimum spanning tree using Prim's algorithm.
      * @return the minimum spanning tree of this instance of Graph.
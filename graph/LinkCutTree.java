@@ -0,0 +1,227 @@
+package graph;
+
+import java.util.Arrays;
+
+public class LinkCutTree {
+    private int size;
+    private int[] parents;
+    private int[] leftChildren;
+    private int[] rightChildren;
+    private boolean[] reversed;
+    private int[] values;
+    private int[] maxima;
+    private int[] stack;
+
+    /**
+     * Creates a link-cut tree (a dynamic forest) over the ids 0 .. n-1, where each id holds a value.
+     * Every preferred path of the forest is stored in a splay tree keyed by depth; the links between splay trees are
+     * path-parent pointers kept in the same parents array (a node is the root of its splay tree when its parent does
+     * not list it as a child).
+     * <li> - parents/leftChildren/rightChildren: the splay trees (-1 when absent).
+     * <li> - reversed: lazy flag that swaps the children of a whole splay subtree (used to re-root a tree).
+     * <li> - values: the value held by each id.
+     * <li> - maxima: the id with the maximum value in each splay subtree.
+     * Complexity: every operation takes O(log(n)) amortized.
+     * @param capacity: initial number of ids (it grows when needed).
+     */
+    public LinkCutTree(int capacity) {
+        capacity = Math.max(capacity, 1);
+        parents = new int[capacity];
+        leftChildren = new int[capacity];
+        rightChildren = new int[capacity];
+        reversed = new boolean[capacity];
+        values = new int[capacity];
+        maxima = new int[capacity];
+        stack = new int[capacity];
+        size = 0;
+    }
+
+    /**
+     * Adds a new isolated id.
+     * @param value: the value held by the id.
+     * @return the new id.
+     */
+    public int addNode(int value) {
+        if (size == parents.length) {
+            int capacity = 2 * size;
+            parents = Arrays.copyOf(parents, capacity);
+            leftChildren = Arrays.copyOf(leftChildren, capacity);
+            rightChildren = Arrays.copyOf(rightChildren, capacity);
+            reversed = Arrays.copyOf(reversed, capacity);
+            values = Arrays.copyOf(values, capacity);
+            maxima = Arrays.copyOf(maxima, capacity);
+            stack = Arrays.copyOf(stack, capacity);
+        }
+        int id = size++;
+        parents[id] = -1;
+        leftChildren[id] = -1;
+        rightChildren[id] = -1;
+        values[id] = value;
+        maxima[id] = id;
+        return id;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getValue(int id) {
+        return values[id];
+    }
+
+    /**
+     * Changes the value of an isolated id (so that ids can be recycled after being cut from the forest).
+     */
+    public void setValue(int id, int value) {
+        access(id);
+        values[id] = value;
+        update(id);
+    }
+
+    public boolean isConnected(int id1, int id2) {
+        return id1 == id2 || findRoot(id1) == findRoot(id2);
+    }
+
+    /**
+     * Links two ids of different trees with an edge.
+     */
+    public void link(int id1, int id2) {
+        makeRoot(id1);
+        parents[id1] = id2;
+    }
+
+    /**
+     * Cuts the edge between two adjacent ids.
+     */
+    public void cut(int id1, int id2) {
+        makeRoot(id1);
+        access(id2);
+        // id1 is now the only node shallower than id2 on its preferred path
+        leftChildren[id2] = -1;
+        parents[id1] = -1;
+        update(id2);
+    }
+
+    /**
+     * Finds the id with the maximum value on the path between two ids of the same tree.
+     */
+    public int getMaximumOnPath(int id1, int id2) {
+        makeRoot(id1);
+        access(id2);
+        return maxima[id2];
+    }
+
+    private int findRoot(int id) {
+        access(id);
+        push(id);
+        while (leftChildren[id] >= 0) {
+            id = leftChildren[id];
+            push(id);
+        }
+        splay(id);
+        return id;
+    }
+
+    private void makeRoot(int id) {
+        access(id);
+        reversed[id] = !reversed[id];
+    }
+
+    /**
+     * Makes the path from the root of the tree to id preferred (id ends up at the root of its splay tree).
+     */
+    private void access(int id) {
+        int last = -1;
+        for (int current = id; current >= 0; current = parents[current]) {
+            splay(current);
+            rightChildren[current] = last;
+            update(current);
+            last = current;
+        }
+        splay(id);
+    }
+
+    private boolean isSplayRoot(int id) {
+        int parent = parents[id];
+        return parent < 0 || (leftChildren[parent] != id && rightChildren[parent] != id);
+    }
+
+    private void splay(int id) {
+        // Push the pending reversals from the root of the splay tree down to id
+        int top = 0;
+        stack[top++] = id;
+        for (int current = id; !isSplayRoot(current); current = parents[current]) {
+            stack[top++] = parents[current];
+        }
+        while (top > 0) {
+            push(stack[--top]);
+        }
+
+        while (!isSplayRoot(id)) {
+            int parent = parents[id];
+            if (!isSplayRoot(parent)) {
+                int grandParent = parents[parent];
+                boolean zigZig = (leftChildren[grandParent] == parent) == (leftChildren[parent] == id);
+                rotate(zigZig ? parent : id);
+            }
+            rotate(id);
+        }
+    }
+
+    private void rotate(int id) {
+        int parent = parents[id];
+        int grandParent = parents[parent];
+        boolean parentIsSplayRoot = isSplayRoot(parent);
+
+        if (leftChildren[parent] == id) {
+            leftChildren[parent] = rightChildren[id];
+            if (rightChildren[id] >= 0) {
+                parents[rightChildren[id]] = parent;
+            }
+            rightChildren[id] = parent;
+        } else {
+            rightChildren[parent] = leftChildren[id];
+            if (leftChildren[id] >= 0) {
+                parents[leftChildren[id]] = parent;
+            }
+            leftChildren[id] = parent;
+        }
+        parents[parent] = id;
+        parents[id] = grandParent;
+        if (!parentIsSplayRoot) {
+            if (leftChildren[grandParent] == parent) {
+                leftChildren[grandParent] = id;
+            } else {
+                rightChildren[grandParent] = id;
+            }
+        }
+        update(parent);
+        update(id);
+    }
+
+    private void push(int id) {
+        if (reversed[id]) {
+            int buffer = leftChildren[id];
+            leftChildren[id] = rightChildren[id];
+            rightChildren[id] = buffer;
+            if (leftChildren[id] >= 0) {
+                reversed[leftChildren[id]] = !reversed[leftChildren[id]];
+            }
+            if (rightChildren[id] >= 0) {
+                reversed[rightChildren[id]] = !reversed[rightChildren[id]];
+            }
+            reversed[id] = false;
+        }
+    }
+
+    private void update(int id) {
+        int maximum = id;
+        if (leftChildren[id] >= 0 && values[maxima[leftChildren[id]]] > values[maximum]) {
+            maximum = maxima[leftChildren[id]];
+        }
+        if (rightChildren[id] >= 0 && values[maxima[rightChildren[id]]] > values[maximum]) {
+            maximum = maxima[rightChildren[id]];
+        }
+        maxima[id] = maximum;
+    }
+}
@@ -0,0 +1,69 @@
+package graph;
+
+import java.util.Arrays;
+
+public class LongPriorityQueue {
+    private long[] heap;
+    private int size;
+
+    /**
+     * Creates a binary min-heap of primitive longs.
+     * It replaces a PriorityQueue<Edge> where the priority can be packed into a single long (no boxing involved).
+     * @param capacity: initial capacity of the heap (it grows when needed).
+     */
+    public LongPriorityQueue(int capacity) {
+        heap = new long[Math.max(capacity, 1)];
+        size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the smallest value of the heap, which is left in place.
+     */
+    public long peek() {
+        return heap[0];
+    }
+
+    public void add(long value) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, 2 * size);
+        }
+
+        // Sift up
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= value) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = value;
+    }
+
+    public long poll() {
+        long top = heap[0];
+        long value = heap[--size];
+
+        // Sift down
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (value <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = value;
+        return top;
+    }
+}
@@ -14,6 +14,10 @@ public class Node {
         this.index = index;
     }
 
+    public int getIndex() {
+        return index;
+    }
+
     public int compareTo(Node that) {
         return Integer.compare(index, that.index);
     }
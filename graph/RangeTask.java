@@ -0,0 +1,55 @@
+package graph;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class RangeTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    // Below this number of positions a task runs them itself instead of splitting
+    private static final int THRESHOLD = 1 << 13;
+
+    public interface RangeAction {
+        void run(int from, int to);
+    }
+
+    private final RangeAction action;
+    private final int from;
+    private final int to;
+
+    /**
+     * Creates a fork-join task running an action over the positions from .. to-1 (split in halves recursively).
+     * @param action: the action, run over disjoint sub-ranges by the workers.
+     * @param from: the first position (inclusive).
+     * @param to: the last position (exclusive).
+     */
+    private RangeTask(RangeAction action, int from, int to) {
+        this.action = action;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Runs an action over the positions from .. to-1 and waits for all of them (so that successive calls are
+     * separated by a barrier).
+     * Note: small ranges are run by the calling thread, which avoids the cost of waking up the workers.
+     * @param pool: the pool running the action (null to run it on the calling thread).
+     */
+    public static void invoke(ForkJoinPool pool, RangeAction action, int from, int to) {
+        if (pool == null || to - from <= THRESHOLD) {
+            action.run(from, to);
+        } else {
+            pool.invoke(new RangeTask(action, from, to));
+        }
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= THRESHOLD) {
+            action.run(from, to);
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        invokeAll(new RangeTask(action, from, middle), new RangeTask(action, middle, to));
+    }
+}
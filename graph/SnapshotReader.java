@@ -0,0 +1,135 @@
+package graph;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.zip.CRC32C;
+
+public class SnapshotReader implements Closeable {
+    // Size of the windows mapped to verify the checksum (a single MappedByteBuffer cannot exceed 2 GB)
+    private static final long WINDOW_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final int kind;
+    private final long payloadLength;
+    private final long expectedChecksum;
+    private long position;
+
+    /**
+     * Opens a snapshot file written by SnapshotWriter and checks its header.
+     * Arrays are memory-mapped when read, so the file is only loaded in memory as the arrays are accessed (the mapped
+     * arrays stay valid after the reader is closed).
+     * <li> - channel: the snapshot file.
+     * <li> - kind: what the payload holds.
+     * <li> - payloadLength: the number of bytes after the header.
+     * <li> - expectedChecksum: the CRC-32C checksum of the payload given by the header.
+     * <li> - position: the file position of the next value to be read.
+     * @param filename: the snapshot file.
+     * @throws IOException: if the file cannot be read.
+     * @throws ParseException: if the file is not a snapshot, has another format version or is truncated.
+     */
+    public SnapshotReader(String filename) throws IOException, ParseException {
+        channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        try {
+            if (channel.size() < SnapshotWriter.HEADER_SIZE) {
+                throw new ParseException("The file is not a snapshot.", 0);
+            }
+            ByteBuffer header = map(0, SnapshotWriter.HEADER_SIZE);
+            if (header.getInt() != SnapshotWriter.MAGIC) {
+                throw new ParseException("The file is not a snapshot.", 0);
+            }
+            int formatVersion = header.getInt();
+            if (formatVersion != SnapshotWriter.FORMAT_VERSION) {
+                throw new ParseException(String.format(
+                    "Unsupported snapshot format version %s (expected %s).", formatVersion, SnapshotWriter.FORMAT_VERSION
+                ), 4);
+            }
+            kind = header.getInt();
+            header.getInt();
+            payloadLength = header.getLong();
+            expectedChecksum = header.getLong();
+            if (channel.size() != SnapshotWriter.HEADER_SIZE + payloadLength) {
+                throw new ParseException("The snapshot is truncated.", (int) Math.min(channel.size(), Integer.MAX_VALUE));
+            }
+            position = SnapshotWriter.HEADER_SIZE;
+        } catch (IOException | ParseException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getKind() {
+        return kind;
+    }
+
+    /**
+     * Computes the checksum of the whole payload and compares it to the header's.
+     * Complexity: O(size of the file) (CRC-32C is computed by the hardware on most processors).
+     * @throws ParseException: if the payload is corrupted.
+     */
+    public void verify() throws IOException, ParseException {
+        CRC32C checksum = new CRC32C();
+        for (long offset = 0; offset < payloadLength; offset += WINDOW_SIZE) {
+            checksum.update(map(SnapshotWriter.HEADER_SIZE + offset, Math.min(WINDOW_SIZE, payloadLength - offset)));
+        }
+        if (checksum.getValue() != expectedChecksum) {
+            throw new ParseException("The snapshot is corrupted (checksum mismatch).", SnapshotWriter.HEADER_SIZE);
+        }
+    }
+
+    public int readInt() throws IOException, ParseException {
+        checkRemaining(4);
+        int value = map(position, 4).getInt();
+        position += 4;
+        return value;
+    }
+
+    /**
+     * Maps the next array of the payload.
+     * @return the mapped bytes of the array (little-endian, see IntBuffer views), to be freed through their cleaner.
+     */
+    public MappedByteBuffer readBuffer() throws IOException, ParseException {
+        int length = readInt();
+        if (length < 0 || length > Integer.MAX_VALUE / 4) {
+            throw new ParseException("The snapshot holds an invalid array length.", (int) Math.min(position - 4, Integer.MAX_VALUE));
+        }
+        checkRemaining(4L * length);
+        MappedByteBuffer buffer = map(position, 4L * length);
+        position += 4L * length;
+        return buffer;
+    }
+
+    /**
+     * Copies the next array of the payload onto the heap.
+     */
+    public int[] readInts() throws IOException, ParseException {
+        IntBuffer values = readBuffer().asIntBuffer();
+        int[] array = new int[values.remaining()];
+        values.get(array);
+        return array;
+    }
+
+    private void checkRemaining(long length) throws ParseException {
+        if (position + length > SnapshotWriter.HEADER_SIZE + payloadLength) {
+            throw new ParseException("The snapshot ends unexpectedly.", (int) Math.min(position, Integer.MAX_VALUE));
+        }
+    }
+
+    private MappedByteBuffer map(long offset, long length) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
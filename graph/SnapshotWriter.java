@@ -0,0 +1,100 @@
+package graph;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+public class SnapshotWriter implements Closeable {
+    // Size of the header: magic, format version, kind, reserved, payload length (long) and checksum (long)
+    public static final int HEADER_SIZE = 32;
+    public static final int MAGIC = 0x5349504d;
+    public static final int FORMAT_VERSION = 3;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final CRC32C checksum;
+    private final int kind;
+    private long payloadLength;
+
+    /**
+     * Creates a writer of snapshot files: a fixed header followed by a payload of little-endian ints and int arrays
+     * (each array is preceded by its length), so that a reader can map the arrays without decoding them.
+     * The header is written on close, once the length and the CRC-32C checksum of the payload are known:
+     * <li> - magic: "MPIS" (0x5349504d read as a little-endian int), to reject files that are not snapshots.
+     * <li> - format version: FORMAT_VERSION, bumped whenever the layout of the payload changes.
+     * <li> - kind: what the payload holds (defined by the caller, e.g. the resolver).
+     * <li> - payload length and checksum: to detect truncated or corrupted files.
+     * @param filename: the file to be written (replaced if it exists).
+     * @param kind: what the payload holds.
+     * @throws IOException: if the file cannot be opened.
+     */
+    public SnapshotWriter(String filename, int kind) throws IOException {
+        channel = FileChannel.open(
+            Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE
+        );
+        buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        checksum = new CRC32C();
+        this.kind = kind;
+        payloadLength = 0;
+        channel.position(HEADER_SIZE);
+    }
+
+    public void writeInt(int value) throws IOException {
+        if (buffer.remaining() < 4) {
+            flush();
+        }
+        buffer.putInt(value);
+    }
+
+    public void writeInts(int[] values) throws IOException {
+        writeInt(values.length);
+        for (int value : values) {
+            writeInt(value);
+        }
+    }
+
+    /**
+     * Writes the ints from the position of a buffer to its limit, preceded by their number.
+     */
+    public void writeInts(IntBuffer values) throws IOException {
+        writeInt(values.remaining());
+        for (int i = values.position(); i < values.limit(); i++) {
+            writeInt(values.get(i));
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        payloadLength += buffer.remaining();
+        checksum.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes the remaining payload and the header, then closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(kind).putInt(0);
+            header.putLong(payloadLength).putLong(checksum.getValue());
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        } finally {
+            channel.close();
+        }
+    }
+}
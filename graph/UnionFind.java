@@ -0,0 +1,58 @@
+package graph;
+
+public class UnionFind {
+    private int[] parents;
+    private byte[] ranks;
+
+    /**
+     * Creates a union-find (disjoint set) data structure over the dense ids 0 .. n-1.
+     * Every id starts in its own set; sets are merged by rank and paths are compressed on find.
+     * <li> - parents: the parent of each id (roots are their own parent).
+     * <li> - ranks: an upper bound on the height of each root's tree (at most log(n), so a byte is enough).
+     * @param nbNodes: number of ids.
+     */
+    public UnionFind(int nbNodes) {
+        parents = new int[nbNodes];
+        ranks = new byte[nbNodes];
+        for (int i = 0; i < nbNodes; i++) {
+            parents[i] = i;
+        }
+    }
+
+    /**
+     * Find operation with path halving (every other node on the path is linked to its grandparent).
+     * Complexity: O(alpha(n)) amortized.
+     * @param id: the id whose root is to be computed.
+     * @return the root of id's disjoint set.
+     */
+    public int find(int id) {
+        while (parents[id] != id) {
+            parents[id] = parents[parents[id]];
+            id = parents[id];
+        }
+        return id;
+    }
+
+    /**
+     * Union operation by rank.
+     * @param id1: an id of the first set.
+     * @param id2: an id of the second set.
+     * @return true if the sets were disjoint (and are now merged), false otherwise.
+     */
+    public boolean union(int id1, int id2) {
+        int root1 = find(id1);
+        int root2 = find(id2);
+        if (root1 == root2) {
+            return false;
+        }
+        if (ranks[root1] < ranks[root2]) {
+            parents[root1] = root2;
+        } else if (ranks[root1] > ranks[root2]) {
+            parents[root2] = root1;
+        } else {
+            parents[root2] = root1;
+            ranks[root1]++;
+        }
+        return true;
+    }
+}
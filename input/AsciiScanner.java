@@ -0,0 +1,77 @@
+package input;
+
+import java.io.IOException;
+import java.text.ParseException;
+
+abstract class AsciiScanner implements IntScanner {
+    /**
+     * Returns the byte at the current position without consuming it, refilling the input if needed.
+     * @return the byte (0 to 255), or -1 at the end of the input.
+     */
+    protected abstract int peek() throws IOException;
+
+    /**
+     * Consumes the byte at the current position, which must have been returned by peek().
+     */
+    protected abstract void read();
+
+    /**
+     * @return the offset of the current position in the input (used to report parse errors).
+     */
+    protected abstract long getOffset();
+
+    @Override
+    public boolean hasNext() throws IOException {
+        return skipWhitespace() >= 0;
+    }
+
+    @Override
+    public int nextInt() throws IOException, ParseException {
+        int current = skipWhitespace();
+        if (current < 0) {
+            throw parseException();
+        }
+
+        boolean negative = current == '-';
+        if (negative) {
+            read();
+        }
+
+        // Accumulate the digits as a negative number so that Integer.MIN_VALUE can be represented
+        long value = 0;
+        int nbDigits = 0;
+        while ((current = peek()) >= '0' && current <= '9') {
+            read();
+            value = 10 * value - (current - '0');
+            if (value < Integer.MIN_VALUE) {
+                throw parseException();
+            }
+            nbDigits++;
+        }
+
+        // A token must contain digits and end with whitespace (or the end of the input)
+        if (nbDigits == 0 || (current >= 0 && !isWhitespace(current))) {
+            throw parseException();
+        }
+        if (!negative && value == Integer.MIN_VALUE) {
+            throw parseException();
+        }
+        return (int) (negative ? value : -value);
+    }
+
+    private int skipWhitespace() throws IOException {
+        int current;
+        while ((current = peek()) >= 0 && isWhitespace(current)) {
+            read();
+        }
+        return current;
+    }
+
+    private static boolean isWhitespace(int character) {
+        return character == ' ' || character == '\n' || character == '\r' || character == '\t' || character == '\f';
+    }
+
+    private ParseException parseException() {
+        return new ParseException("There was a problem parsing the file.", (int) Math.min(getOffset(), Integer.MAX_VALUE));
+    }
+}
@@ -0,0 +1,19 @@
+package input;
+
+import java.io.IOException;
+import java.text.ParseException;
+
+interface IntScanner {
+    /**
+     * Skips the whitespace after the current position.
+     * @return true if there is a token left to be scanned, false otherwise.
+     */
+    boolean hasNext() throws IOException;
+
+    /**
+     * Scans the next token as an integer (an optional '-' sign followed by ASCII digits).
+     * @return the integer represented by the token.
+     * @throws ParseException: if there is no token left or if the token is not a valid integer.
+     */
+    int nextInt() throws IOException, ParseException;
+}
@@ -0,0 +1,104 @@
+package input;
+
+import graph.CompactGraph;
+import graph.Node;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+
+public class MappedProblem {
+    private CompactGraph graph;
+    private int nbQueries;
+    private int[] queryStarts;
+    private int[] queryEnds;
+
+    /**
+     * Create a new instance of the problem by memory-mapping the input file.
+     * Unlike Problem, no Node, Edge or Query is allocated: the file is scanned directly into primitive arrays.
+     * <li> - graph: the compressed sparse row representation of the graph.
+     * <li> - queryStarts: the node index of the start of each query.
+     * <li> - queryEnds: the node index of the end of each query.
+     * @param filename: input file with the graph and query data to be parsed
+     * @throws IOException: if the input file cannot be found in the system or cannot be mapped
+     * @throws ParseException: if the file does not respect the parsing strategy
+     */
+    public MappedProblem(String filename) throws IOException, ParseException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            MappedScanner input = new MappedScanner(channel);
+            graph = parseGraph(input);
+            parseQuery(input);
+
+            // If there are still strings left to be parsed then something went wrong
+            if (input.hasNext()) {
+                throw new ParseException("There was a problem parsing the file.", 0);
+            }
+        }
+    }
+
+    public CompactGraph getGraph() {
+        return graph;
+    }
+
+    public int getNbQueries() {
+        return nbQueries;
+    }
+
+    public int getQueryStart(int i) {
+        return queryStarts[i];
+    }
+
+    public int getQueryEnd(int i) {
+        return queryEnds[i];
+    }
+
+    /**
+     * Creates the i-th query as an object (for the resolvers that take a Query).
+     * @param i: the position of the query in the file.
+     * @return the query.
+     */
+    public Query getQuery(int i) {
+        return new Query(new Node(queryStarts[i]), new Node(queryEnds[i]));
+    }
+
+    static CompactGraph parseGraph(IntScanner input) throws IOException, ParseException {
+        // Line 0: get the number of nodes and vertices
+        input.nextInt();
+        int nbEdges = parseCount(input);
+
+        // Lines 1 .. m: parse the graph
+        int[] sources = new int[nbEdges];
+        int[] targets = new int[nbEdges];
+        int[] noises = new int[nbEdges];
+        for (int i = 0; i < nbEdges; i++) {
+            sources[i] = input.nextInt();
+            targets[i] = input.nextInt();
+            noises[i] = input.nextInt();
+        }
+
+        return new CompactGraph(nbEdges, sources, targets, noises);
+    }
+
+    private void parseQuery(MappedScanner input) throws IOException, ParseException {
+        // Line m + 1: get the number of queries
+        nbQueries = parseCount(input);
+
+        // Lines (m + 2) .. (m + 1 + l): parse the queries
+        queryStarts = new int[nbQueries];
+        queryEnds = new int[nbQueries];
+        for (int i = 0; i < nbQueries; i++) {
+            queryStarts[i] = input.nextInt();
+            queryEnds[i] = input.nextInt();
+        }
+    }
+
+    static int parseCount(IntScanner input) throws IOException, ParseException {
+        int count = input.nextInt();
+        if (count < 0) {
+            throw new ParseException("There was a problem parsing the file.", 0);
+        }
+        return count;
+    }
+}
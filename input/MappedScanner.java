@@ -0,0 +1,59 @@
+package input;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+class MappedScanner extends AsciiScanner {
+    // Size of each mapped window (a single MappedByteBuffer cannot exceed 2 GB)
+    private static final long WINDOW_SIZE = 1L << 30;
+
+    private FileChannel channel;
+    private long size;
+    private long windowStart;
+    private MappedByteBuffer window;
+
+    /**
+     * Creates a scanner of ASCII integers over a memory-mapped file.
+     * The file is mapped through consecutive read-only windows, so the heap usage does not depend on the file size.
+     * <li> - channel: the file being scanned (owned by the caller).
+     * <li> - size: the size of the file in bytes.
+     * <li> - windowStart: the file position where the current window starts.
+     * <li> - window: the currently mapped region of the file.
+     * @param channel: an open channel to the file to be scanned.
+     * @throws IOException: if the file cannot be mapped.
+     */
+    MappedScanner(FileChannel channel) throws IOException {
+        this.channel = channel;
+        size = channel.size();
+        windowStart = 0;
+        window = map(0);
+    }
+
+    @Override
+    protected int peek() throws IOException {
+        if (!window.hasRemaining()) {
+            long next = windowStart + window.limit();
+            if (next >= size) {
+                return -1;
+            }
+            windowStart = next;
+            window = map(next);
+        }
+        return window.get(window.position()) & 0xff;
+    }
+
+    @Override
+    protected void read() {
+        window.get();
+    }
+
+    @Override
+    protected long getOffset() {
+        return windowStart + window.position();
+    }
+
+    private MappedByteBuffer map(long position) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, size - position));
+    }
+}
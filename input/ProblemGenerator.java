@@ -0,0 +1,272 @@
+package input;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Random;
+
+public class ProblemGenerator {
+    public enum Shape {
+        PATH, STAR, CATERPILLAR, BINARY, RANDOM;
+    }
+
+    public enum NoiseDistribution {
+        UNIFORM, CONSTANT, FEW, SKEWED;
+    }
+
+    private final long seed;
+    private int nbNodes;
+    private int nbExtraEdges;
+    private Shape shape;
+    private NoiseDistribution noiseDistribution;
+    private int maxNoise;
+    private boolean shuffled;
+    private int nbQueries;
+    private int nbHotPairs;
+    private double hotRatio;
+    private double repeatRatio;
+    private double sameNodeRatio;
+
+    /**
+     * Creates a generator of synthetic problems, written in the format parsed by Problem (nodes are numbered 1 .. n).
+     * Two generators with the same seed and settings write the same file.
+     * The graph is a spanning tree of the given shape plus random extra edges (so that it is always connected):
+     * <li> - nbNodes: number of nodes (default 1000).
+     * <li> - nbExtraEdges: number of random edges added to the tree (default 0, parallel edges are possible).
+     * <li> - shape: PATH (chain), STAR (every node attached to the first one), CATERPILLAR (a chain of half the nodes,
+     *        the others attached to a random node of the chain), BINARY (complete binary tree) or RANDOM (every node
+     *        attached to a random previous node) (default RANDOM).
+     * <li> - noiseDistribution: UNIFORM in 0 .. maxNoise, CONSTANT (every noise is maxNoise), FEW (10 distinct values,
+     *        hence many ties) or SKEWED (mostly quiet edges and a few noisy ones) (default UNIFORM).
+     * <li> - maxNoise: the largest noise (default 1000000).
+     * <li> - shuffled: whether node numbers are randomly permuted (otherwise they follow the shape) (default false).
+     * The queries pick their extremities uniformly, except for the following ratios of queries:
+     * <li> - nbQueries: number of queries (default nbNodes).
+     * <li> - nbHotPairs/hotRatio: hotRatio of the queries are drawn among nbHotPairs fixed pairs (default 0).
+     * <li> - repeatRatio: ratio of the queries that repeat a previous query (default 0).
+     * <li> - sameNodeRatio: ratio of the queries whose start is their end (default 0).
+     * @param seed: the seed of the random generator.
+     */
+    public ProblemGenerator(long seed) {
+        this.seed = seed;
+        nbNodes = 1000;
+        nbExtraEdges = 0;
+        shape = Shape.RANDOM;
+        noiseDistribution = NoiseDistribution.UNIFORM;
+        maxNoise = 1000000;
+        shuffled = false;
+        nbQueries = -1;
+        nbHotPairs = 0;
+        hotRatio = 0;
+        repeatRatio = 0;
+        sameNodeRatio = 0;
+    }
+
+    public void setNbNodes(int nbNodes) {
+        if (nbNodes < 2) {
+            throw new IllegalArgumentException("A problem must have at least two nodes.");
+        }
+        this.nbNodes = nbNodes;
+    }
+
+    public void setNbExtraEdges(int nbExtraEdges) {
+        this.nbExtraEdges = nbExtraEdges;
+    }
+
+    public void setShape(Shape shape) {
+        this.shape = shape;
+    }
+
+    public void setNoiseDistribution(NoiseDistribution noiseDistribution) {
+        this.noiseDistribution = noiseDistribution;
+    }
+
+    public void setMaxNoise(int maxNoise) {
+        this.maxNoise = maxNoise;
+    }
+
+    public void setShuffled(boolean shuffled) {
+        this.shuffled = shuffled;
+    }
+
+    public void setNbQueries(int nbQueries) {
+        this.nbQueries = nbQueries;
+    }
+
+    public void setHotPairs(int nbHotPairs, double hotRatio) {
+        this.nbHotPairs = nbHotPairs;
+        this.hotRatio = nbHotPairs > 0 ? hotRatio : 0;
+    }
+
+    public void setRepeatRatio(double repeatRatio) {
+        this.repeatRatio = repeatRatio;
+    }
+
+    public void setSameNodeRatio(double sameNodeRatio) {
+        this.sameNodeRatio = sameNodeRatio;
+    }
+
+    public void write(String filename) throws IOException {
+        try (Writer writer = new BufferedWriter(new FileWriter(filename), 1 << 16)) {
+            write(writer);
+        }
+    }
+
+    /**
+     * Writes the problem.
+     * Complexity: O(n + m + l) time, O(n + l) memory (the edges are written as soon as they are drawn).
+     * @param writer: where the problem is written.
+     * @throws IOException: if the problem cannot be written.
+     */
+    public void write(Writer writer) throws IOException {
+        Random random = new Random(seed);
+        int[] labels = getLabels(random);
+        StringBuilder line = new StringBuilder(64);
+
+        // Line 0: the number of nodes and edges
+        writeLine(writer, line.append(nbNodes).append(' ').append(nbNodes - 1L + nbExtraEdges));
+
+        // Lines 1 .. m: the spanning tree, then the extra edges
+        int spineLength = (nbNodes + 1) / 2;
+        for (int v = 1; v < nbNodes; v++) {
+            int parent;
+            switch (shape) {
+                case PATH: parent = v - 1; break;
+                case STAR: parent = 0; break;
+                case CATERPILLAR: parent = v < spineLength ? v - 1 : random.nextInt(spineLength); break;
+                case BINARY: parent = (v - 1) / 2; break;
+                case RANDOM: parent = random.nextInt(v); break;
+                default: throw new RuntimeException("Unrecognized shape.");
+            }
+            writeEdge(writer, line, labels[v], labels[parent], random);
+        }
+        for (int i = 0; i < nbExtraEdges; i++) {
+            int node1 = random.nextInt(nbNodes);
+            int node2 = random.nextInt(nbNodes - 1);
+            writeEdge(writer, line, labels[node1], labels[node2 < node1 ? node2 : node2 + 1], random);
+        }
+
+        // Line m + 1: the number of queries
+        int nbQueries = this.nbQueries < 0 ? nbNodes : this.nbQueries;
+        writeLine(writer, line.append(nbQueries));
+
+        // Lines (m + 2) .. (m + 1 + l): the queries
+        int[] hotStarts = new int[nbHotPairs];
+        int[] hotEnds = new int[nbHotPairs];
+        for (int i = 0; i < nbHotPairs; i++) {
+            hotStarts[i] = labels[random.nextInt(nbNodes)];
+            hotEnds[i] = labels[random.nextInt(nbNodes)];
+        }
+        int[] starts = new int[nbQueries];
+        int[] ends = new int[nbQueries];
+        for (int i = 0; i < nbQueries; i++) {
+            double kind = random.nextDouble();
+            if (kind < sameNodeRatio) {
+                starts[i] = labels[random.nextInt(nbNodes)];
+                ends[i] = starts[i];
+            } else if (kind < sameNodeRatio + hotRatio) {
+                int pair = random.nextInt(nbHotPairs);
+                starts[i] = hotStarts[pair];
+                ends[i] = hotEnds[pair];
+            } else if (kind < sameNodeRatio + hotRatio + repeatRatio && i > 0) {
+                int previous = random.nextInt(i);
+                starts[i] = starts[previous];
+                ends[i] = ends[previous];
+            } else {
+                starts[i] = labels[random.nextInt(nbNodes)];
+                ends[i] = labels[random.nextInt(nbNodes)];
+            }
+            writeLine(writer, line.append(starts[i]).append(' ').append(ends[i]));
+        }
+    }
+
+    /**
+     * @return the number of each node (1 .. n, randomly permuted if shuffled).
+     */
+    private int[] getLabels(Random random) {
+        int[] labels = new int[nbNodes];
+        for (int v = 0; v < nbNodes; v++) {
+            labels[v] = v + 1;
+        }
+        if (shuffled) {
+            for (int v = nbNodes - 1; v > 0; v--) {
+                int other = random.nextInt(v + 1);
+                int buffer = labels[v];
+                labels[v] = labels[other];
+                labels[other] = buffer;
+            }
+        }
+        return labels;
+    }
+
+    private int getNoise(Random random) {
+        switch (noiseDistribution) {
+            case UNIFORM: return random.nextInt(maxNoise + 1);
+            case CONSTANT: return maxNoise;
+            case FEW: return random.nextInt(10) * (maxNoise / 9);
+            case SKEWED: return (int) (maxNoise * Math.pow(random.nextDouble(), 8));
+            default: throw new RuntimeException("Unrecognized noise distribution.");
+        }
+    }
+
+    private void writeEdge(Writer writer, StringBuilder line, int node1, int node2, Random random) throws IOException {
+        writeLine(writer, line.append(node1).append(' ').append(node2).append(' ').append(getNoise(random)));
+    }
+
+    private static void writeLine(Writer writer, StringBuilder line) throws IOException {
+        line.append('\n');
+        writer.append(line);
+        line.setLength(0);
+    }
+
+    /**
+     * Command line tool: java input.ProblemGenerator [--option=value ...] output-file
+     * Options: seed, nodes, extra-edges, shape, noise, max-noise, shuffled, queries, hot-pairs, hot-ratio,
+     * repeat-ratio, same-node-ratio (e.g. --nodes=1000000 --shape=path --extra-edges=9000000).
+     */
+    public static void main(String[] args) throws IOException {
+        String filename = null;
+        long seed = 0;
+        for (String arg : args) {
+            if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            }
+        }
+        ProblemGenerator generator = new ProblemGenerator(seed);
+        int nbHotPairs = 0;
+        double hotRatio = 0;
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                filename = arg;
+                continue;
+            }
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException(String.format("Option %s has no value", arg));
+            }
+            String value = arg.substring(separator + 1);
+            switch (arg.substring(2, separator)) {
+                case "seed": break;
+                case "nodes": generator.setNbNodes(Integer.parseInt(value)); break;
+                case "extra-edges": generator.setNbExtraEdges(Integer.parseInt(value)); break;
+                case "shape": generator.setShape(Shape.valueOf(value.toUpperCase(Locale.ROOT))); break;
+                case "noise": generator.setNoiseDistribution(NoiseDistribution.valueOf(value.toUpperCase(Locale.ROOT))); break;
+                case "max-noise": generator.setMaxNoise(Integer.parseInt(value)); break;
+                case "shuffled": generator.setShuffled(Boolean.parseBoolean(value)); break;
+                case "queries": generator.setNbQueries(Integer.parseInt(value)); break;
+                case "hot-pairs": nbHotPairs = Integer.parseInt(value); break;
+                case "hot-ratio": hotRatio = Double.parseDouble(value); break;
+                case "repeat-ratio": generator.setRepeatRatio(Double.parseDouble(value)); break;
+                case "same-node-ratio": generator.setSameNodeRatio(Double.parseDouble(value)); break;
+                default: throw new IllegalArgumentException(String.format("Unrecognized option: %s", arg));
+            }
+        }
+        if (filename == null) {
+            throw new IllegalArgumentException("Usage: java input.ProblemGenerator [--option=value ...] output-file");
+        }
+        generator.setHotPairs(nbHotPairs, hotRatio);
+        generator.write(filename);
+    }
+}
@@ -2,6 +2,8 @@ package input;
 
 import graph.Node;
 
+import java.util.Objects;
+
 public class Query {
     private Node start;
     private Node end;
@@ -35,6 +37,23 @@ public class Query {
         }
     }
 
+    /**
+     * Two queries are equal if they have the same start and the same end (in this order).
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Query)) {
+            return false;
+        }
+        Query that = (Query) obj;
+        return start.equals(that.start) && end.equals(that.end);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(start, end);
+    }
+
     @Override
     public String toString() {
         return String.format("Query(%s, %s)", start, end);
@@ -0,0 +1,54 @@
+package input;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+class StreamScanner extends AsciiScanner {
+    // Size of the read buffer
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private InputStream stream;
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private long bufferStart;
+
+    /**
+     * Creates a scanner of ASCII integers over a stream (for inputs that cannot be mapped, such as pipes).
+     * The stream is read through a fixed-size buffer, so the heap usage does not depend on the input size.
+     * <li> - stream: the stream being scanned (owned by the caller).
+     * <li> - buffer: the bytes read from the stream, valid in position .. limit-1.
+     * <li> - bufferStart: the stream offset of the first byte of the buffer (used to report parse errors).
+     * @param stream: the stream to be scanned.
+     */
+    StreamScanner(InputStream stream) {
+        this.stream = stream;
+        buffer = new byte[BUFFER_SIZE];
+        position = 0;
+        limit = 0;
+        bufferStart = 0;
+    }
+
+    @Override
+    protected int peek() throws IOException {
+        if (position == limit) {
+            bufferStart += limit;
+            position = 0;
+            limit = Math.max(stream.read(buffer), 0);
+            if (limit == 0) {
+                return -1;
+            }
+        }
+        return buffer[position] & 0xff;
+    }
+
+    @Override
+    protected void read() {
+        position++;
+    }
+
+    @Override
+    protected long getOffset() {
+        return bufferStart + position;
+    }
+}
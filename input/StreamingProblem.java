@@ -0,0 +1,73 @@
+package input;
+
+import graph.CompactGraph;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+
+public class StreamingProblem implements Closeable {
+    private StreamScanner input;
+    private InputStream stream;
+    private CompactGraph graph;
+    private int nbQueries;
+    private int nbReadQueries;
+
+    /**
+     * Create a new instance of the problem that reads its queries on demand.
+     * The graph section is parsed at construction, then the queries are read in chunks through readQueries, so the
+     * memory used for the queries is the one of the chunks (whatever the number of queries in the stream).
+     * <li> - graph: the compressed sparse row representation of the graph.
+     * <li> - nbQueries: the number of queries announced by the stream.
+     * <li> - nbReadQueries: the number of queries read so far.
+     * @param stream: input stream with the graph and query data to be parsed (closed by close).
+     * @throws IOException: if the stream cannot be read
+     * @throws ParseException: if the graph section or the number of queries does not respect the parsing strategy
+     */
+    public StreamingProblem(InputStream stream) throws IOException, ParseException {
+        this.stream = stream;
+        input = new StreamScanner(stream);
+        graph = MappedProblem.parseGraph(input);
+
+        // Line m + 1: get the number of queries
+        nbQueries = MappedProblem.parseCount(input);
+        nbReadQueries = 0;
+    }
+
+    public CompactGraph getGraph() {
+        return graph;
+    }
+
+    public int getNbQueries() {
+        return nbQueries;
+    }
+
+    /**
+     * Reads the next chunk of queries.
+     * @param starts: filled with the node index of the start of each query.
+     * @param ends: filled with the node index of the end of each query.
+     * @return the number of queries read (at most starts.length, 0 once every query has been read).
+     * @throws IOException: if the stream cannot be read
+     * @throws ParseException: if the queries do not respect the parsing strategy (or are followed by anything)
+     */
+    public int readQueries(int[] starts, int[] ends) throws IOException, ParseException {
+        int nbQueries = (int) Math.min(starts.length, (long) this.nbQueries - nbReadQueries);
+        for (int i = 0; i < nbQueries; i++) {
+            starts[i] = input.nextInt();
+            ends[i] = input.nextInt();
+        }
+        nbReadQueries += nbQueries;
+
+        // If there are still strings left to be parsed then something went wrong
+        if (nbReadQueries == this.nbQueries && input.hasNext()) {
+            throw new ParseException("There was a problem parsing the file.", 0);
+        }
+        return nbQueries;
+    }
+
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+}
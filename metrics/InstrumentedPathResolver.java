@@ -0,0 +1,130 @@
+package metrics;
+
+import input.Query;
+import path.Itinerary;
+import path.ItineraryResolver;
+import path.OnlinePathResolver;
+import path.PathResolver;
+
+import java.util.concurrent.ForkJoinPool;
+
+public class InstrumentedPathResolver extends OnlinePathResolver {
+    private final OnlinePathResolver resolver;
+    private final Metrics metrics;
+
+    /**
+     * Creates a front-end to a path resolver recording the latency of every query and batch in the metrics.
+     * Recording takes two System.nanoTime() calls and a few atomic updates, and does not allocate, so it can be left
+     * on without distorting the measures (or the garbage collector).
+     * @param resolver: the resolver answering the queries (see Offline for the resolvers answering batches only).
+     * @param metrics: where the latencies are recorded.
+     */
+    private InstrumentedPathResolver(OnlinePathResolver resolver, Metrics metrics) {
+        this.resolver = resolver;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Creates a front-end to a path resolver recording the latencies (see the constructor), which also reconstructs
+     * itineraries if the resolver does (they are not recorded).
+     * @param resolver: the resolver answering the queries.
+     * @param metrics: where the latencies are recorded.
+     * @return the front-end (an ItineraryResolver if the resolver is one).
+     */
+    public static InstrumentedPathResolver wrap(OnlinePathResolver resolver, Metrics metrics) {
+        return resolver instanceof ItineraryResolver
+            ? new Itineraries(resolver, metrics)
+            : new InstrumentedPathResolver(resolver, metrics);
+    }
+
+    public OnlinePathResolver getResolver() {
+        return resolver;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public int getMaximumNoise(Query query) {
+        long startTime = System.nanoTime();
+        int answer = resolver.getMaximumNoise(query);
+        metrics.recordQuery(startTime, System.nanoTime());
+        return answer;
+    }
+
+    @Override
+    public int getMaximumNoise(int start, int end) {
+        long startTime = System.nanoTime();
+        int answer = resolver.getMaximumNoise(start, end);
+        metrics.recordQuery(startTime, System.nanoTime());
+        return answer;
+    }
+
+    @Override
+    public void getMaximumNoises(int[] starts, int[] ends, int[] answers, ForkJoinPool pool) {
+        long startTime = System.nanoTime();
+        resolver.getMaximumNoises(starts, ends, answers, pool);
+        metrics.recordBatch(startTime, System.nanoTime(), starts.length);
+    }
+
+    @Override
+    public void close() {
+        resolver.close();
+    }
+
+    @Override
+    public String toString() {
+        return resolver.toString();
+    }
+
+    private static class Itineraries extends InstrumentedPathResolver implements ItineraryResolver {
+        private final ItineraryResolver itineraries;
+
+        private Itineraries(OnlinePathResolver resolver, Metrics metrics) {
+            super(resolver, metrics);
+            itineraries = (ItineraryResolver) resolver;
+        }
+
+        @Override
+        public Itinerary getItinerary(int start, int end) {
+            return itineraries.getItinerary(start, end);
+        }
+    }
+
+    public static class Offline extends PathResolver {
+        private final PathResolver resolver;
+        private final Metrics metrics;
+
+        /**
+         * Creates a front-end to an offline path resolver (which answers batches only) recording the latency of every
+         * batch in the metrics.
+         * @param resolver: the resolver answering the batches.
+         * @param metrics: where the latencies are recorded.
+         */
+        public Offline(PathResolver resolver, Metrics metrics) {
+            this.resolver = resolver;
+            this.metrics = metrics;
+        }
+
+        public int getMaximumNoise(Query query) {
+            return resolver.getMaximumNoise(query);
+        }
+
+        @Override
+        public void getMaximumNoises(int[] starts, int[] ends, int[] answers, ForkJoinPool pool) {
+            long startTime = System.nanoTime();
+            resolver.getMaximumNoises(starts, ends, answers, pool);
+            metrics.recordBatch(startTime, System.nanoTime(), starts.length);
+        }
+
+        @Override
+        public void close() {
+            resolver.close();
+        }
+
+        @Override
+        public String toString() {
+            return resolver.toString();
+        }
+    }
+}
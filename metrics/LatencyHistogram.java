@@ -0,0 +1,112 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyHistogram {
+    // Number of sub-buckets per power of two (2^SUB_BITS), which bounds the relative error of a percentile
+    private static final int SUB_BITS = 4;
+    private static final int NB_SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int NB_BUCKETS = (64 - SUB_BITS + 1) * NB_SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong total;
+    private final AtomicLong max;
+
+    /**
+     * Creates a histogram of durations (in nanoseconds) with log-linear buckets.
+     * Values below 2^SUB_BITS have a bucket each; above, each power of two is split into 2^SUB_BITS equal buckets, so
+     * a percentile is given within 1/2^SUB_BITS (about 6%) of the actual value, whatever the range of the values.
+     * <li> - counts: the number of values recorded in each bucket.
+     * <li> - total: the sum of the values recorded (for the mean).
+     * <li> - max: the largest value recorded.
+     * Recording is lock-free and does not allocate, so any number of threads may record on a hot path.
+     */
+    public LatencyHistogram() {
+        counts = new AtomicLongArray(NB_BUCKETS);
+        total = new AtomicLong();
+        max = new AtomicLong();
+    }
+
+    /**
+     * Records a value.
+     * Complexity: O(1), no allocation.
+     * @param value: the duration to be recorded (negative durations are recorded as 0).
+     */
+    public void record(long value) {
+        value = Math.max(value, 0);
+        counts.incrementAndGet(getBucket(value));
+        total.addAndGet(value);
+        long currentMax;
+        while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value)) {
+            // Another thread recorded a value concurrently, try again
+        }
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < NB_BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public long getTotal() {
+        return total.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) total.get() / count;
+    }
+
+    /**
+     * Computes a percentile of the values recorded so far (while values may still be recorded concurrently).
+     * Complexity: O(number of buckets).
+     * @param percentile: the percentile to be computed, between 0 and 1 (e.g. 0.99).
+     * @return the largest value of the bucket holding the percentile (or the maximum if it is smaller), 0 if empty.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = new long[NB_BUCKETS];
+        long count = 0;
+        for (int i = 0; i < NB_BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile * count));
+        long seen = 0;
+        for (int i = 0; i < NB_BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(getBucketEnd(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    private static int getBucket(long value) {
+        if (value < NB_SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BITS)) & (NB_SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * NB_SUB_BUCKETS + subBucket;
+    }
+
+    private static long getBucketEnd(int bucket) {
+        if (bucket < NB_SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / NB_SUB_BUCKETS + SUB_BITS - 1;
+        long subBucket = bucket % NB_SUB_BUCKETS;
+        long start = (NB_SUB_BUCKETS + subBucket) << (exponent - SUB_BITS);
+        return start + (1L << (exponent - SUB_BITS)) - 1;
+    }
+}
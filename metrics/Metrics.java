@@ -0,0 +1,353 @@
+package metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class Metrics implements MetricsMXBean {
+    public enum Phase {
+        PARSE, SPANNING_TREE, RESOLVER_BUILD;
+    }
+
+    private final long[] phaseTimes;
+    private long nbNodes;
+    private long retainedHeapBytes;
+    private long retainedDirectBytes;
+    private final LatencyHistogram queryLatencies;
+    private final LatencyHistogram batchLatencies;
+    private final AtomicLong nbBatchQueries;
+    private final AtomicLong firstQueryTime;
+    private ObjectName objectName;
+
+    /**
+     * Creates the metrics of a run: the duration of each preprocessing phase, the heap retained by the resolver and
+     * the latency of the queries (recorded by InstrumentedPathResolver), along with the garbage collections and the
+     * memory usage of the process (read from the platform MXBeans).
+     * <li> - phaseTimes: the duration of each phase in nanoseconds (-1 if it did not run).
+     * <li> - nbNodes: the number of nodes of the graph.
+     * <li> - retainedHeapBytes: the heap retained by the resolver once built (-1 if not measured).
+     * <li> - retainedDirectBytes: the direct memory (off the heap) retained by the resolver once built.
+     * <li> - queryLatencies: the latency of each query answered on its own, in nanoseconds.
+     * <li> - batchLatencies: the latency of each batch of queries, in nanoseconds.
+     * <li> - nbBatchQueries: the number of queries answered in batches.
+     * <li> - firstQueryTime: the System.nanoTime() of the first query (0 until then), for the throughput.
+     * <li> - objectName: the name under which the metrics are registered as an MBean (null if not registered).
+     */
+    public Metrics() {
+        phaseTimes = new long[Phase.values().length];
+        Arrays.fill(phaseTimes, -1);
+        retainedHeapBytes = -1;
+        queryLatencies = new LatencyHistogram();
+        batchLatencies = new LatencyHistogram();
+        nbBatchQueries = new AtomicLong();
+        firstQueryTime = new AtomicLong();
+    }
+
+    public synchronized void setPhaseTime(Phase phase, long nanoseconds) {
+        phaseTimes[phase.ordinal()] = nanoseconds;
+    }
+
+    /**
+     * Sets the memory retained by the resolver (see getUsedHeap and getUsedDirectMemory).
+     * @param retainedHeapBytes: the difference of the used heap after and before building the resolver.
+     * @param retainedDirectBytes: the difference of the used direct memory after and before building the resolver.
+     * @param nbNodes: the number of nodes of the graph.
+     */
+    public synchronized void setRetainedMemory(long retainedHeapBytes, long retainedDirectBytes, long nbNodes) {
+        this.retainedHeapBytes = retainedHeapBytes;
+        this.retainedDirectBytes = retainedDirectBytes;
+        this.nbNodes = nbNodes;
+    }
+
+    /**
+     * Records the latency of a query answered on its own.
+     * Complexity: O(1), no allocation.
+     */
+    void recordQuery(long startTime, long endTime) {
+        firstQueryTime.compareAndSet(0, startTime);
+        queryLatencies.record(endTime - startTime);
+    }
+
+    /**
+     * Records the latency of a batch of queries.
+     * Complexity: O(1), no allocation.
+     */
+    void recordBatch(long startTime, long endTime, int nbQueries) {
+        firstQueryTime.compareAndSet(0, startTime);
+        batchLatencies.record(endTime - startTime);
+        nbBatchQueries.addAndGet(nbQueries);
+    }
+
+    public LatencyHistogram getQueryLatencies() {
+        return queryLatencies;
+    }
+
+    public LatencyHistogram getBatchLatencies() {
+        return batchLatencies;
+    }
+
+    @Override
+    public long getParseTimeMillis() {
+        return getPhaseTimeMillis(Phase.PARSE);
+    }
+
+    @Override
+    public long getSpanningTreeTimeMillis() {
+        return getPhaseTimeMillis(Phase.SPANNING_TREE);
+    }
+
+    @Override
+    public long getResolverBuildTimeMillis() {
+        return getPhaseTimeMillis(Phase.RESOLVER_BUILD);
+    }
+
+    @Override
+    public synchronized long getNbNodes() {
+        return nbNodes;
+    }
+
+    @Override
+    public synchronized long getRetainedHeapBytes() {
+        return retainedHeapBytes;
+    }
+
+    @Override
+    public synchronized long getRetainedDirectBytes() {
+        return retainedDirectBytes;
+    }
+
+    @Override
+    public synchronized double getRetainedHeapBytesPerNode() {
+        return retainedHeapBytes < 0 || nbNodes == 0 ? -1 : (double) retainedHeapBytes / nbNodes;
+    }
+
+    @Override
+    public long getNbQueries() {
+        return queryLatencies.getCount() + nbBatchQueries.get();
+    }
+
+    /**
+     * @return the number of queries answered per second since the first query (0 before).
+     */
+    @Override
+    public double getQueriesPerSecond() {
+        long startTime = firstQueryTime.get();
+        long elapsedTime = System.nanoTime() - startTime;
+        return startTime == 0 || elapsedTime <= 0 ? 0 : getNbQueries() * 1e9 / elapsedTime;
+    }
+
+    @Override
+    public long getNbSingleQueries() {
+        return queryLatencies.getCount();
+    }
+
+    @Override
+    public long getQueryLatencyP50Nanos() {
+        return queryLatencies.getValueAtPercentile(0.50);
+    }
+
+    @Override
+    public long getQueryLatencyP99Nanos() {
+        return queryLatencies.getValueAtPercentile(0.99);
+    }
+
+    @Override
+    public long getQueryLatencyP999Nanos() {
+        return queryLatencies.getValueAtPercentile(0.999);
+    }
+
+    @Override
+    public long getQueryLatencyMaxNanos() {
+        return queryLatencies.getMax();
+    }
+
+    @Override
+    public long getNbBatches() {
+        return batchLatencies.getCount();
+    }
+
+    @Override
+    public long getBatchLatencyP50Micros() {
+        return batchLatencies.getValueAtPercentile(0.50) / 1000;
+    }
+
+    @Override
+    public long getBatchLatencyP99Micros() {
+        return batchLatencies.getValueAtPercentile(0.99) / 1000;
+    }
+
+    @Override
+    public long getBatchLatencyMaxMicros() {
+        return batchLatencies.getMax() / 1000;
+    }
+
+    /**
+     * @return the number of garbage collections since the start of the process (all collectors).
+     */
+    @Override
+    public long getGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(collector.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    /**
+     * @return the accumulated time of the garbage collections since the start of the process (all collectors).
+     */
+    @Override
+    public long getGcTimeMillis() {
+        long time = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(collector.getCollectionTime(), 0);
+        }
+        return time;
+    }
+
+    /**
+     * @return the sum of the peak usages of the heap memory pools since the start of the process.
+     */
+    @Override
+    public long getPeakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    @Override
+    public long getDirectMemoryBytes() {
+        return getUsedDirectMemory();
+    }
+
+    private synchronized long getPhaseTimeMillis(Phase phase) {
+        long phaseTime = phaseTimes[phase.ordinal()];
+        return phaseTime < 0 ? -1 : phaseTime / 1000000;
+    }
+
+    /**
+     * Registers the metrics on the platform MBean server (e.g. to be read with jconsole or any JMX client).
+     * @param name: the name of the run (e.g. the resolver), used in the object name.
+     */
+    public synchronized void register(String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            objectName = new ObjectName("mostpleasantitineraries:type=Metrics,name=" + ObjectName.quote(name));
+            server.registerMBean(this, objectName);
+        } catch (JMException e) {
+            throw new RuntimeException("There was a problem registering the metrics: " + e.getMessage());
+        }
+    }
+
+    public synchronized void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            objectName = null;
+        } catch (JMException e) {
+            throw new RuntimeException("There was a problem unregistering the metrics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the metrics, either as a JSON object or as CSV (metric,value lines).
+     * @param writer: where the metrics are written.
+     * @param name: the name of the run (e.g. the resolver).
+     * @param json: whether to write JSON (one object) or CSV.
+     */
+    public void write(Writer writer, String name, boolean json) throws IOException {
+        Object[][] values = {
+            {"name", name},
+            {"parse_time_ms", getParseTimeMillis()},
+            {"spanning_tree_time_ms", getSpanningTreeTimeMillis()},
+            {"resolver_build_time_ms", getResolverBuildTimeMillis()},
+            {"nb_nodes", getNbNodes()},
+            {"retained_heap_bytes", getRetainedHeapBytes()},
+            {"retained_heap_bytes_per_node", getRetainedHeapBytesPerNode()},
+            {"retained_direct_bytes", getRetainedDirectBytes()},
+            {"nb_queries", getNbQueries()},
+            {"queries_per_second", getQueriesPerSecond()},
+            {"nb_single_queries", getNbSingleQueries()},
+            {"query_latency_mean_ns", queryLatencies.getMean()},
+            {"query_latency_p50_ns", getQueryLatencyP50Nanos()},
+            {"query_latency_p99_ns", getQueryLatencyP99Nanos()},
+            {"query_latency_p999_ns", getQueryLatencyP999Nanos()},
+            {"query_latency_max_ns", getQueryLatencyMaxNanos()},
+            {"nb_batches", getNbBatches()},
+            {"batch_latency_mean_us", batchLatencies.getMean() / 1000},
+            {"batch_latency_p50_us", getBatchLatencyP50Micros()},
+            {"batch_latency_p99_us", getBatchLatencyP99Micros()},
+            {"batch_latency_max_us", getBatchLatencyMaxMicros()},
+            {"gc_count", getGcCount()},
+            {"gc_time_ms", getGcTimeMillis()},
+            {"peak_heap_bytes", getPeakHeapBytes()},
+            {"direct_memory_bytes", getDirectMemoryBytes()},
+        };
+        writer.write(json ? "{\n" : "metric,value\n");
+        for (int i = 0; i < values.length; i++) {
+            String value = format(values[i][1], json);
+            if (json) {
+                writer.write(String.format("  \"%s\": %s%s\n", values[i][0], value, i + 1 < values.length ? "," : ""));
+            } else {
+                writer.write(String.format("%s,%s\n", values[i][0], value));
+            }
+        }
+        if (json) {
+            writer.write("}\n");
+        }
+    }
+
+    private static String format(Object value, boolean json) {
+        if (value instanceof Double) {
+            return String.format(Locale.ROOT, "%.3f", (Double) value);
+        }
+        if (value instanceof String) {
+            String text = (String) value;
+            return json ? "\"" + text.replace("\\", "\\\\").replace("\"", "\\\"") + "\""
+                        : "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * Measures the used heap after a full collection (System.gc() is only a hint, so it is requested a few times).
+     * Note: this is slow and stops the world, it must only be called outside of the measured phases.
+     * @return the number of bytes used on the heap.
+     */
+    public static long getUsedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * @return the memory currently used by direct buffers (e.g. off-heap tables).
+     */
+    public static long getUsedDirectMemory() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+}
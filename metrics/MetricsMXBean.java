@@ -0,0 +1,51 @@
+package metrics;
+
+/**
+ * Management interface of Metrics (registered as mostpleasantitineraries:type=Metrics,name=...).
+ * Durations are in milliseconds for the phases, in nanoseconds for the queries and in microseconds for the batches.
+ */
+public interface MetricsMXBean {
+    long getParseTimeMillis();
+
+    long getSpanningTreeTimeMillis();
+
+    long getResolverBuildTimeMillis();
+
+    long getNbNodes();
+
+    long getRetainedHeapBytes();
+
+    double getRetainedHeapBytesPerNode();
+
+    long getRetainedDirectBytes();
+
+    long getNbQueries();
+
+    double getQueriesPerSecond();
+
+    long getNbSingleQueries();
+
+    long getQueryLatencyP50Nanos();
+
+    long getQueryLatencyP99Nanos();
+
+    long getQueryLatencyP999Nanos();
+
+    long getQueryLatencyMaxNanos();
+
+    long getNbBatches();
+
+    long getBatchLatencyP50Micros();
+
+    long getBatchLatencyP99Micros();
+
+    long getBatchLatencyMaxMicros();
+
+    long getGcCount();
+
+    long getGcTimeMillis();
+
+    long getPeakHeapBytes();
+
+    long getDirectMemoryBytes();
+}
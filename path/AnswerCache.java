@@ -0,0 +1,103 @@
+package path;
+
+import java.util.Arrays;
+
+class AnswerCache {
+    // Returned by get when the key is not cached (answers are ints, so no answer can be confused with it)
+    static final long MISSING = Long.MIN_VALUE;
+
+    // Number of entries per set
+    private static final int WAYS = 4;
+    // Maximum number of locks, each guarding the sets whose index is congruent to it (modulo the number of locks)
+    private static final int STRIPES = 64;
+
+    private final long[] keys;
+    private final int[] answers;
+    private final int[] lastUses;
+    private final int setMask;
+    private final Stripe[] stripes;
+
+    /**
+     * Creates a bounded cache of answers keyed by non-negative longs.
+     * The cache is set-associative: a key can only be stored in the WAYS entries of the set given by its hash, and
+     * when the set is full the least recently used entry of the set is evicted. Lookups and insertions therefore take
+     * constant time and the cache never allocates after construction.
+     * <li> - keys: the key of each entry (-1 if the entry is empty).
+     * <li> - answers: the answer of each entry.
+     * <li> - lastUses: the time at which each entry was last read or written (on the clock of its stripe).
+     * <li> - setMask: the number of sets minus one (a power of two).
+     * <li> - stripes: the locks of the sets, which also hold their clocks (recency is only compared within a set).
+     * Note: the cache is thread-safe; threads only contend when their keys fall into sets of the same stripe.
+     * @param capacity: the maximum number of entries (rounded down to a power of two, at least WAYS).
+     */
+    AnswerCache(int capacity) {
+        int nbSets = Integer.highestOneBit(Math.max(capacity / WAYS, 1));
+        keys = new long[nbSets * WAYS];
+        answers = new int[nbSets * WAYS];
+        lastUses = new int[nbSets * WAYS];
+        Arrays.fill(keys, -1);
+        setMask = nbSets - 1;
+        stripes = new Stripe[Math.min(nbSets, STRIPES)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    int getCapacity() {
+        return keys.length;
+    }
+
+    /**
+     * @return the answer cached for the key, or MISSING.
+     */
+    long get(long key) {
+        int set = hash(key) & setMask;
+        int first = set * WAYS;
+        Stripe stripe = stripes[set & (stripes.length - 1)];
+        synchronized (stripe) {
+            for (int entry = first; entry < first + WAYS; entry++) {
+                if (keys[entry] == key) {
+                    lastUses[entry] = ++stripe.clock;
+                    return answers[entry];
+                }
+            }
+        }
+        return MISSING;
+    }
+
+    void put(long key, int answer) {
+        int set = hash(key) & setMask;
+        int first = set * WAYS;
+        Stripe stripe = stripes[set & (stripes.length - 1)];
+        synchronized (stripe) {
+            int victim = first;
+            for (int entry = first; entry < first + WAYS; entry++) {
+                if (keys[entry] == key || keys[entry] < 0) {
+                    victim = entry;
+                    break;
+                }
+                if (lastUses[entry] - lastUses[victim] < 0) {
+                    victim = entry;
+                }
+            }
+            keys[victim] = key;
+            answers[victim] = answer;
+            lastUses[victim] = ++stripe.clock;
+        }
+    }
+
+    /**
+     * Mixes the bits of a key (finalizer of MurmurHash3), so that neighboring pairs spread over the low bits.
+     * @return the hash of the key, whose low bits index the sets of the cache or any power of two table.
+     */
+    static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    private static final class Stripe {
+        private int clock;
+    }
+}
@@ -0,0 +1,50 @@
+package path;
+
+import java.util.concurrent.RecursiveAction;
+
+class BatchQueryTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    // Below this number of queries a task answers them itself instead of splitting
+    private static final int THRESHOLD = 1 << 12;
+
+    private final OnlinePathResolver resolver;
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] answers;
+    private final int from;
+    private final int to;
+
+    /**
+     * Creates a fork-join task answering the queries at positions from .. to-1 of a batch.
+     * @param resolver: the resolver answering the queries.
+     * @param starts: the index of the beginning of each query's path.
+     * @param ends: the index of the end of each query's path.
+     * @param answers: filled with the maximum noise of each query.
+     * @param from: the first position (inclusive).
+     * @param to: the last position (exclusive).
+     */
+    BatchQueryTask(OnlinePathResolver resolver, int[] starts, int[] ends, int[] answers, int from, int to) {
+        this.resolver = resolver;
+        this.starts = starts;
+        this.ends = ends;
+        this.answers = answers;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= THRESHOLD) {
+            for (int i = from; i < to; i++) {
+                answers[i] = resolver.getMaximumNoise(starts[i], ends[i]);
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        invokeAll(
+            new BatchQueryTask(resolver, starts, ends, answers, from, middle),
+            new BatchQueryTask(resolver, starts, ends, answers, middle, to)
+        );
+    }
+}
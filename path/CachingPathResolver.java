@@ -0,0 +1,230 @@
+package path;
+
+import input.Query;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+public class CachingPathResolver extends OnlinePathResolver {
+    private final OnlinePathResolver resolver;
+    private final AnswerCache cache;
+    private final LongAdder nbQueries;
+    private final LongAdder nbTrivialQueries;
+    private final LongAdder nbCacheHits;
+    private final LongAdder nbDuplicates;
+
+    /**
+     * Creates a front-end to a path resolver for skewed query streams.
+     * The path between two nodes does not depend on its direction, so queries are canonicalized as (min, max) pairs
+     * of node indexes, then:
+     * <li> - trivial queries (start == end) are answered 0 without reaching the resolver;
+     * <li> - recent answers are kept in a bounded cache (evicting the least recently used pairs);
+     * <li> - within a batch, each distinct pair is only given once to the resolver.
+     * The statistics below count the queries and how they were answered.
+     * Note: a cache miss is answered on its own, so only online resolvers can be put behind the cache.
+     * Note: trivial queries are not checked against the graph (a node that is not part of it is not reported).
+     * @param resolver: the resolver answering the remaining queries.
+     * @param cacheCapacity: the maximum number of cached answers (0 disables the cache).
+     */
+    public CachingPathResolver(OnlinePathResolver resolver, int cacheCapacity) {
+        this.resolver = resolver;
+        cache = cacheCapacity > 0 ? new AnswerCache(cacheCapacity) : null;
+        nbQueries = new LongAdder();
+        nbTrivialQueries = new LongAdder();
+        nbCacheHits = new LongAdder();
+        nbDuplicates = new LongAdder();
+    }
+
+    /**
+     * Creates a front-end to a path resolver for skewed query streams (see the constructor), which also reconstructs
+     * itineraries if the resolver does (they are neither cached nor counted).
+     * @param resolver: the resolver answering the remaining queries.
+     * @param cacheCapacity: the maximum number of cached answers (0 disables the cache).
+     * @return the front-end (an ItineraryResolver if the resolver is one).
+     */
+    public static CachingPathResolver wrap(OnlinePathResolver resolver, int cacheCapacity) {
+        return resolver instanceof ItineraryResolver
+            ? new Itineraries(resolver, cacheCapacity)
+            : new CachingPathResolver(resolver, cacheCapacity);
+    }
+
+    public int getMaximumNoise(Query query) {
+        return getMaximumNoise(query.getStart().getIndex(), query.getEnd().getIndex());
+    }
+
+    /**
+     * Computes the maximum noise on the path between two nodes (the cache is shared by all threads).
+     * @param start: the index of the beginning of the path.
+     * @param end: the index of the end of the path.
+     * @return the maximum noise, or UNREACHABLE if the nodes are in different components.
+     */
+    @Override
+    public int getMaximumNoise(int start, int end) {
+        nbQueries.increment();
+        if (start == end) {
+            nbTrivialQueries.increment();
+            return 0;
+        }
+        long key = pack(start, end);
+        if (cache != null) {
+            long cachedAnswer = cache.get(key);
+            if (cachedAnswer != AnswerCache.MISSING) {
+                nbCacheHits.increment();
+                return (int) cachedAnswer;
+            }
+        }
+
+        int answer = resolver.getMaximumNoise(Math.min(start, end), Math.max(start, end));
+        if (cache != null) {
+            cache.put(key, answer);
+        }
+        return answer;
+    }
+
+    /**
+     * Computes the maximum noise of a batch of queries.
+     * The batch is filtered on the calling thread (trivial queries, cache hits and duplicates), then the distinct
+     * remaining pairs are given to the resolver as a single batch on the pool.
+     * Complexity: O(l) on top of the resolver's batch (l = number of queries in the batch).
+     */
+    @Override
+    public void getMaximumNoises(int[] starts, int[] ends, int[] answers, ForkJoinPool pool) {
+        checkBatch(starts, ends, answers);
+        int nbBatchQueries = starts.length;
+
+        // Open addressing table from the distinct pairs to their position among the pairs given to the resolver
+        int tableSize = Integer.highestOneBit(Math.max(2 * nbBatchQueries, 1)) << 1;
+        long[] tableKeys = new long[tableSize];
+        int[] tablePositions = new int[tableSize];
+        Arrays.fill(tableKeys, -1);
+
+        // Positions of the queries among the pairs given to the resolver (-1 if answered already)
+        int[] positions = new int[nbBatchQueries];
+        int[] pairStarts = new int[nbBatchQueries];
+        int[] pairEnds = new int[nbBatchQueries];
+        int nbPairs = 0;
+        long nbTrivial = 0;
+        long nbHits = 0;
+        if (cache != null) {
+            for (int i = 0; i < nbBatchQueries; i++) {
+                if (starts[i] != ends[i]) {
+                    long cachedAnswer = cache.get(pack(starts[i], ends[i]));
+                    if (cachedAnswer != AnswerCache.MISSING) {
+                        answers[i] = (int) cachedAnswer;
+                        positions[i] = -1;
+                        nbHits++;
+                        continue;
+                    }
+                }
+                positions[i] = 0;
+            }
+        }
+        for (int i = 0; i < nbBatchQueries; i++) {
+            if (positions[i] < 0) {
+                continue;
+            }
+            if (starts[i] == ends[i]) {
+                answers[i] = 0;
+                positions[i] = -1;
+                nbTrivial++;
+                continue;
+            }
+            long key = pack(starts[i], ends[i]);
+            int slot = AnswerCache.hash(key) & (tableSize - 1);
+            while (tableKeys[slot] >= 0 && tableKeys[slot] != key) {
+                slot = (slot + 1) & (tableSize - 1);
+            }
+            if (tableKeys[slot] < 0) {
+                tableKeys[slot] = key;
+                tablePositions[slot] = nbPairs;
+                pairStarts[nbPairs] = Math.min(starts[i], ends[i]);
+                pairEnds[nbPairs++] = Math.max(starts[i], ends[i]);
+            }
+            positions[i] = tablePositions[slot];
+        }
+
+        int[] pairAnswers = new int[nbPairs];
+        resolver.getMaximumNoises(Arrays.copyOf(pairStarts, nbPairs), Arrays.copyOf(pairEnds, nbPairs), pairAnswers, pool);
+        for (int i = 0; i < nbBatchQueries; i++) {
+            if (positions[i] >= 0) {
+                answers[i] = pairAnswers[positions[i]];
+            }
+        }
+        if (cache != null) {
+            for (int pair = 0; pair < nbPairs; pair++) {
+                cache.put(pack(pairStarts[pair], pairEnds[pair]), pairAnswers[pair]);
+            }
+        }
+
+        nbQueries.add(nbBatchQueries);
+        nbTrivialQueries.add(nbTrivial);
+        nbCacheHits.add(nbHits);
+        nbDuplicates.add(nbBatchQueries - nbTrivial - nbHits - nbPairs);
+    }
+
+    public long getNbQueries() {
+        return nbQueries.sum();
+    }
+
+    public long getNbTrivialQueries() {
+        return nbTrivialQueries.sum();
+    }
+
+    public long getNbCacheHits() {
+        return nbCacheHits.sum();
+    }
+
+    public long getNbDuplicates() {
+        return nbDuplicates.sum();
+    }
+
+    /**
+     * @return the ratio of the queries that did not reach the resolver (trivial, cached or duplicated).
+     */
+    public double getHitRate() {
+        long nbQueries = getNbQueries();
+        return nbQueries == 0 ? 0 : (double) (getNbTrivialQueries() + getNbCacheHits() + getNbDuplicates()) / nbQueries;
+    }
+
+    public String getStatistics() {
+        return String.format(
+            "%s queries, %s trivial, %s cache hits, %s duplicates (hit rate %.1f%%)",
+            getNbQueries(), getNbTrivialQueries(), getNbCacheHits(), getNbDuplicates(), 100 * getHitRate()
+        );
+    }
+
+    /**
+     * Packs a pair of node indexes into a key that does not depend on the direction of the pair.
+     */
+    private static long pack(int start, int end) {
+        if (start < 0 || end < 0) {
+            throw new IllegalArgumentException("Node indexes must be non-negative.");
+        }
+        return ((long) Math.min(start, end) << 32) | Math.max(start, end);
+    }
+
+    @Override
+    public void close() {
+        resolver.close();
+    }
+
+    @Override
+    public String toString() {
+        return "Caching" + resolver;
+    }
+
+    private static class Itineraries extends CachingPathResolver implements ItineraryResolver {
+        private final ItineraryResolver itineraries;
+
+        private Itineraries(OnlinePathResolver resolver, int cacheCapacity) {
+            super(resolver, cacheCapacity);
+            itineraries = (ItineraryResolver) resolver;
+        }
+
+        @Override
+        public Itinerary getItinerary(int start, int end) {
+            return itineraries.getItinerary(start, end);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package path;
+
+import graph.CompactGraph;
+import graph.Graph;
+import graph.LongPriorityQueue;
+import graph.Node;
+import graph.SnapshotReader;
+import graph.SnapshotWriter;
+import input.Query;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Arrays;
+
+public class EulerTourPathResolver extends OnlinePathResolver {
+    private final CompactGraph tree;
+    private final IntTable order;
+    private final IntTable entryTimes;
+    private final IntTable sparseTable;
+    private final IntTable positions;
+    private final IntTable noiseTable;
+
+    /**
+     * Creates an online path resolver whose queries take constant time.
+     * The LCA is found through a range minimum query over the Euler tour of the tree, restricted to the first visit of
+     * each node (the depth first search order): for u != v with entryTimes[u] < entryTimes[v], the LCA is the
+     * shallowest parent of the nodes visited in entryTimes[u] + 1 .. entryTimes[v], that is the parent with the
+     * smallest entry time.
+     * The maximum noise is found through a range maximum query over a second tour of the tree, in the order Prim's
+     * algorithm visits it (always reaching next the node with the least noisy edge to the visited ones): for nodes at
+     * positions i < j of that tour, the maximum noise on their path is the noisiest edge through which the nodes at
+     * positions i + 1 .. j were reached.
+     * The private attributes below represent different views of the graph for caching purposes (indexed by dense id).
+     * <li> - tree: the tree itself (used to translate node indexes and tell apart the components of a forest).
+     * <li> - order: the dense id of the node visited at each time of the depth first search (a single row).
+     * <li> - entryTimes: the time at which each node is visited by the depth first search (inverse of order).
+     * <li> - sparseTable: sparseTable(k, i) is the smallest parent entry time of the nodes visited at times i .. i + 2^k.
+     * <li> - positions: the position of each node in Prim's tour (a single row).
+     * <li> - noiseTable: noiseTable(k, i) is the noisiest edge reaching the nodes at positions i + 1 .. i + 2^k.
+     * @param tree: the graph where the path is to be computed on.
+     */
+    public EulerTourPathResolver(Graph tree) {
+        this(tree.toCompactGraph());
+    }
+
+    /**
+     * Creates an online path resolver on the compressed sparse row representation of the tree.
+     * @param tree: the graph where the path is to be computed on.
+     */
+    public EulerTourPathResolver(CompactGraph tree) {
+        this(tree, IntTable.Storage.HEAP);
+    }
+
+    /**
+     * Creates an online path resolver whose tables are stored as requested.
+     * @param tree: the graph where the path is to be computed on.
+     * @param storage: where the tables are stored (off the heap, they are freed by close()).
+     */
+    public EulerTourPathResolver(CompactGraph tree, IntTable.Storage storage) {
+        this.tree = tree;
+        int nbNodes = tree.getNbNodes();
+        int[] visitOrder = new int[nbNodes];
+        int[] nodeEntryTimes = new int[nbNodes];
+        int[] parentTimes = new int[nbNodes];
+
+        // Visit each component from its root through an iterative depth first search
+        // The stack keeps the entry time of the parent of each pushed node (-2 marks pushed nodes)
+        // Complexity: O(n + m)
+        Arrays.fill(nodeEntryTimes, -1);
+        int[] stack = new int[nbNodes];
+        int[] stackParentTimes = new int[nbNodes];
+        int time = 0;
+        for (int root = 0; root < nbNodes; root++) {
+            if (nodeEntryTimes[root] >= 0) {
+                continue;
+            }
+            // This choice is completely arbitrary, any other node of the component could be chosen as the root
+            // The root is its own parent (its entry time is never part of a query's range)
+            int size = 0;
+            stack[size] = root;
+            stackParentTimes[size++] = time;
+            nodeEntryTimes[root] = -2;
+            while (size > 0) {
+                int currentNode = stack[--size];
+                parentTimes[time] = stackParentTimes[size];
+                nodeEntryTimes[currentNode] = time;
+                visitOrder[time++] = currentNode;
+                for (int slot = tree.getAdjacencyStart(currentNode); slot < tree.getAdjacencyEnd(currentNode); slot++) {
+                    // Look for already visited nodes to avoid looping through them again
+                    int nextNode = tree.getNeighbor(slot);
+                    if (nodeEntryTimes[nextNode] == -1) {
+                        nodeEntryTimes[nextNode] = -2;
+                        stack[size] = nextNode;
+                        stackParentTimes[size++] = nodeEntryTimes[currentNode];
+                    }
+                }
+            }
+        }
+
+        // Range minimum over the parent entry times through a sparse table
+        // Complexity: O(n log(n))
+        int nbLevels = nbNodes <= 1 ? 1 : 32 - Integer.numberOfLeadingZeros(nbNodes);
+        int[] rowLengths = new int[nbLevels];
+        for (int k = 0; k < nbLevels; k++) {
+            rowLengths[k] = Math.max(nbNodes - (1 << k) + 1, 0);
+        }
+        order = IntTable.allocate(storage, 1, nbNodes);
+        order.setRow(0, visitOrder);
+        entryTimes = IntTable.allocate(storage, 1, nbNodes);
+        entryTimes.setRow(0, nodeEntryTimes);
+        sparseTable = IntTable.allocate(storage, rowLengths);
+        sparseTable.setRow(0, parentTimes);
+        for (int k = 1; k < nbLevels; k++) {
+            int half = 1 << (k - 1);
+            for (int i = 0; i < rowLengths[k]; i++) {
+                sparseTable.set(k, i, Math.min(sparseTable.get(k - 1, i), sparseTable.get(k - 1, i + half)));
+            }
+        }
+
+        // Visit each component in Prim's order from its root, through a heap of the edges leaving the visited nodes
+        // Each edge is packed in a long (noise in the high bits, adjacency slot in the low bits)
+        // Complexity: O(n log(n))
+        int[] nodePositions = new int[nbNodes];
+        int[] gaps = new int[Math.max(nbNodes - 1, 0)];
+        Arrays.fill(nodePositions, -1);
+        LongPriorityQueue edgeQueue = new LongPriorityQueue(nbNodes);
+        int position = 0;
+        for (int root = 0; root < nbNodes; root++) {
+            if (nodePositions[root] >= 0) {
+                continue;
+            }
+            // Gaps between components are never read (their queries are unreachable)
+            int noise = UNREACHABLE;
+            int currentNode = root;
+            while (true) {
+                if (position > 0) {
+                    gaps[position - 1] = noise;
+                }
+                nodePositions[currentNode] = position++;
+                for (int slot = tree.getAdjacencyStart(currentNode); slot < tree.getAdjacencyEnd(currentNode); slot++) {
+                    if (nodePositions[tree.getNeighbor(slot)] < 0) {
+                        edgeQueue.add(((long) tree.getNoise(slot) << 32) | slot);
+                    }
+                }
+                if (edgeQueue.isEmpty()) {
+                    break;
+                }
+                int slot = (int) edgeQueue.poll();
+                noise = tree.getNoise(slot);
+                currentNode = tree.getNeighbor(slot);
+            }
+        }
+
+        // Range maximum over the gaps through a sparse table
+        // Complexity: O(n log(n))
+        int nbNoiseLevels = gaps.length == 0 ? 1 : 32 - Integer.numberOfLeadingZeros(gaps.length);
+        int[] noiseRowLengths = new int[nbNoiseLevels];
+        for (int k = 0; k < nbNoiseLevels; k++) {
+            noiseRowLengths[k] = Math.max(gaps.length - (1 << k) + 1, 0);
+        }
+        positions = IntTable.allocate(storage, 1, nbNodes);
+        positions.setRow(0, nodePositions);
+        noiseTable = IntTable.allocate(storage, noiseRowLengths);
+        noiseTable.setRow(0, gaps);
+        for (int k = 1; k < nbNoiseLevels; k++) {
+            int half = 1 << (k - 1);
+            for (int i = 0; i < noiseRowLengths[k]; i++) {
+                noiseTable.set(k, i, max(noiseTable.get(k - 1, i), noiseTable.get(k - 1, i + half)));
+            }
+        }
+    }
+
+    private EulerTourPathResolver(CompactGraph tree, IntTable order, IntTable entryTimes, IntTable sparseTable,
+                                  IntTable positions, IntTable noiseTable) {
+        this.tree = tree;
+        this.order = order;
+        this.entryTimes = entryTimes;
+        this.sparseTable = sparseTable;
+        this.positions = positions;
+        this.noiseTable = noiseTable;
+    }
+
+    /**
+     * Restores a resolver written by write() without building its tables again (they are mapped from the snapshot).
+     * @param reader: the snapshot, positioned at the resolver.
+     * @param tree: the tree the resolver was built on.
+     * @return the resolver.
+     * @throws ParseException: if the tables do not match the tree.
+     */
+    static EulerTourPathResolver read(SnapshotReader reader, CompactGraph tree) throws IOException, ParseException {
+        IntTable order = IntTable.read(reader);
+        IntTable entryTimes = IntTable.read(reader);
+        IntTable sparseTable = IntTable.read(reader);
+        IntTable positions = IntTable.read(reader);
+        IntTable noiseTable = IntTable.read(reader);
+        EulerTourPathResolver resolver = new EulerTourPathResolver(
+            tree, order, entryTimes, sparseTable, positions, noiseTable
+        );
+        int nbNodes = tree.getNbNodes();
+        if (order.getFootprint() != 4L * nbNodes || entryTimes.getFootprint() != 4L * nbNodes
+                || sparseTable.getLength(0) != nbNodes || positions.getFootprint() != 4L * nbNodes
+                || noiseTable.getLength(0) != Math.max(nbNodes - 1, 0)) {
+            resolver.close();
+            throw new ParseException("The snapshot holds tables that do not match the tree.", 0);
+        }
+        return resolver;
+    }
+
+    void write(SnapshotWriter writer) throws IOException {
+        order.write(writer);
+        entryTimes.write(writer);
+        sparseTable.write(writer);
+        positions.write(writer);
+        noiseTable.write(writer);
+    }
+
+    public int getMaximumNoise(Query query) {
+        return getMaximumNoise(query.getStart().getIndex(), query.getEnd().getIndex());
+    }
+
+    /**
+     * Computes the maximum noise on the path between two nodes.
+     * Complexity: O(1) (two lookups in the noise table).
+     * @param start: the index of the beginning of the path.
+     * @param end: the index of the end of the path.
+     * @return the maximum noise, or UNREACHABLE if the nodes are in different components.
+     */
+    @Override
+    public int getMaximumNoise(int start, int end) {
+        int node1 = tree.getId(start);
+        int node2 = tree.getId(end);
+        if (!tree.isConnected(node1, node2)) {
+            return UNREACHABLE;
+        }
+        if (node1 == node2) {
+            return 0;
+        }
+
+        int position1 = positions.get(0, node1);
+        int position2 = positions.get(0, node2);
+        int first = Math.min(position1, position2);
+        int last = Math.max(position1, position2) - 1;
+        int k = 31 - Integer.numberOfLeadingZeros(last - first + 1);
+        return max(noiseTable.get(k, first), noiseTable.get(k, last - (1 << k) + 1));
+    }
+
+    /**
+     * Finds the lowest common ancestor of two nodes.
+     * Complexity: O(1) (two lookups in the sparse table).
+     * @param node1: one of the nodes.
+     * @param node2: the other node.
+     * @return the lowest common ancestor, or null if the nodes are in different components.
+     */
+    public Node findLowestCommonAncestor(Node node1, Node node2) {
+        int id1 = tree.getId(node1);
+        int id2 = tree.getId(node2);
+        if (!tree.isConnected(id1, id2)) {
+            return null;
+        }
+        if (id1 == id2) {
+            return node1;
+        }
+
+        int entryTime1 = entryTimes.get(0, id1);
+        int entryTime2 = entryTimes.get(0, id2);
+        int first = Math.min(entryTime1, entryTime2) + 1;
+        int last = Math.max(entryTime1, entryTime2);
+        int k = 31 - Integer.numberOfLeadingZeros(last - first + 1);
+        return tree.getNode(order.get(0, Math.min(sparseTable.get(k, first), sparseTable.get(k, last - (1 << k) + 1))));
+    }
+
+    /**
+     * @return the number of bytes held by the tables (on or off the heap).
+     */
+    public long getFootprint() {
+        return order.getFootprint() + entryTimes.getFootprint() + sparseTable.getFootprint() + positions.getFootprint()
+            + noiseTable.getFootprint();
+    }
+
+    @Override
+    public void close() {
+        order.close();
+        entryTimes.close();
+        sparseTable.close();
+        positions.close();
+        noiseTable.close();
+    }
+
+    @Override
+    public String toString() {
+        return "EulerTourPathResolver";
+    }
+}
@@ -0,0 +1,431 @@
+package path;
+
+import graph.CompactGraph;
+import graph.Edge;
+import graph.Graph;
+import graph.LongPriorityQueue;
+import graph.UnionFind;
+import input.Query;
+
+import java.util.Arrays;
+
+public class HeavyLightPathResolver extends OnlinePathResolver {
+    private CompactGraph graph;
+    private int[] slotEdges;
+    private int[] edgeSources;
+    private int[] edgeTargets;
+    private int[] edgeNoises;
+    private boolean[] inTree;
+
+    private int[] parents;
+    private int[] depths;
+    private int[] sizes;
+    private int[] heads;
+    private int[] positions;
+    private int[] segmentTree;
+    private LongPriorityQueue[] coverQueues;
+    private long nbCoverEntries;
+    private long maxCoverEntries;
+
+    /**
+     * Creates a path resolver based on the heavy-light decomposition of the minimum spanning forest of a graph.
+     * The forest is split into heavy paths laid out contiguously (heavy child first), so that every path of the forest
+     * crosses O(log(n)) heavy paths and every subtree is a contiguous range of positions.
+     * A segment tree over these positions holds the noise of the edge between each node and its parent, which lets the
+     * noise of a single edge be updated without rebuilding anything.
+     * The private attributes below represent different views of the graph for caching purposes (indexed by dense id).
+     * <li> - graph: the graph itself (used to translate node indexes and tell apart its components).
+     * <li> - slotEdges: the edge number behind each adjacency slot seen from the smaller dense id (-1 otherwise).
+     * <li> - edgeSources/edgeTargets/edgeNoises: the current state of every edge of the graph.
+     * <li> - inTree: whether each edge belongs to the minimum spanning forest.
+     * <li> - parents/depths/sizes: the shape of the forest (each component's root is its own parent).
+     * <li> - heads: the first (shallowest) node of the heavy path of each node.
+     * <li> - positions: the position of each node in the heavy-path-first layout.
+     * <li> - segmentTree: range maximum over the noise to the parent of the node at each position.
+     * <li> - coverQueues: for each node of a segment tree over the same positions, a min-heap of the non-tree edges
+     *        whose tree path covers its positions (see getMinimumCrossingNoise(), null until it is first needed).
+     * <li> - nbCoverEntries: the number of entries of the heaps, stale ones included.
+     * <li> - maxCoverEntries: the number of entries past which the heaps are built again (to bound the stale ones).
+     * Note: the whole graph (and not only its spanning tree) is needed to detect when an update changes the topology.
+     * @param graph: the graph where the path is to be computed on.
+     */
+    public HeavyLightPathResolver(Graph graph) {
+        this(graph.toCompactGraph());
+    }
+
+    /**
+     * Creates a path resolver based on the heavy-light decomposition of the compressed sparse row representation.
+     * @param graph: the graph where the path is to be computed on.
+     */
+    public HeavyLightPathResolver(CompactGraph graph) {
+        this.graph = graph;
+        int nbEdges = graph.getNbEdges();
+        slotEdges = new int[2 * nbEdges];
+        edgeSources = new int[nbEdges];
+        edgeTargets = new int[nbEdges];
+        edgeNoises = new int[nbEdges];
+
+        // Number every edge once (from the adjacency of its smaller dense id)
+        int edge = 0;
+        for (int v = 0; v < graph.getNbNodes(); v++) {
+            for (int slot = graph.getAdjacencyStart(v); slot < graph.getAdjacencyEnd(v); slot++) {
+                if (v < graph.getNeighbor(slot)) {
+                    edgeSources[edge] = v;
+                    edgeTargets[edge] = graph.getNeighbor(slot);
+                    edgeNoises[edge] = graph.getNoise(slot);
+                    slotEdges[slot] = edge++;
+                } else {
+                    slotEdges[slot] = -1;
+                }
+            }
+        }
+
+        buildDecomposition();
+    }
+
+    public int getMaximumNoise(Query query) {
+        return getMaximumNoise(query.getStart().getIndex(), query.getEnd().getIndex());
+    }
+
+    /**
+     * Computes the maximum noise on the minimum spanning forest path between two nodes.
+     * Complexity: O(log(n)^2) (O(log(n)) heavy paths, each one being a range maximum query).
+     * @param start: the index of the beginning of the path.
+     * @param end: the index of the end of the path.
+     * @return the maximum noise, or UNREACHABLE if the nodes are in different components.
+     */
+    @Override
+    public int getMaximumNoise(int start, int end) {
+        int node1 = graph.getId(start);
+        int node2 = graph.getId(end);
+        if (!graph.isConnected(node1, node2)) {
+            return UNREACHABLE;
+        }
+        int maximumNoise = getMaximumNoiseOnPath(node1, node2);
+        return maximumNoise == Integer.MIN_VALUE ? 0 : maximumNoise;
+    }
+
+    /**
+     * Updates the noise of an edge of the graph.
+     * The minimum spanning forest keeps its topology (and the update takes O(log(n))) when:
+     * <li> - a tree edge gets quieter.
+     * <li> - a non-tree edge gets noisier.
+     * <li> - a non-tree edge gets quieter but not quieter than the noisiest edge of the tree path it closes.
+     * <li> - a tree edge gets noisier but not noisier than every non-tree edge crossing the cut it defines.
+     * Otherwise the forest is rebuilt from the updated edges in O(m log(m)).
+     * Note: the last case finds the quietest non-tree edge crossing the cut in O(log(n) log(m)), once the heaps of the
+     * non-tree edges are built (O(m log(n)^2) after each rebuild, on the first such update).
+     * Note: updates must not run concurrently with queries.
+     * @param edge: the edge to be updated (identified by its vertices and its current noise).
+     * @param newNoise: the new noise of the edge.
+     * @return true if the topology of the minimum spanning forest is unchanged, false if it had to be rebuilt.
+     */
+    public boolean updateNoise(Edge edge, int newNoise) {
+        int source = graph.getId(edge.getSource());
+        int target = graph.getId(edge.getTarget());
+        int edgeNumber = findEdge(source, target, edge.getNoise());
+        if (edgeNumber < 0) {
+            throw new IllegalArgumentException(String.format("Graph does not contain %s", edge));
+        }
+
+        int oldNoise = edgeNoises[edgeNumber];
+        boolean unchanged;
+        if (inTree[edgeNumber]) {
+            unchanged = newNoise <= oldNoise || newNoise <= getMinimumCrossingNoise(edgeNumber);
+        } else {
+            unchanged = newNoise >= oldNoise || newNoise >= getMaximumNoiseOnPath(source, target);
+        }
+
+        edgeNoises[edgeNumber] = newNoise;
+        if (!unchanged) {
+            buildDecomposition();
+        } else if (inTree[edgeNumber]) {
+            int child = parents[source] == target ? source : target;
+            updateSegmentTree(positions[child], newNoise);
+        } else if (coverQueues != null) {
+            // The entries with the former noise are stale, they are dropped once they reach the top of their heap
+            if (nbCoverEntries > maxCoverEntries) {
+                coverQueues = null;
+            } else {
+                coverPath(edgeNumber);
+            }
+        }
+        return unchanged;
+    }
+
+    private int findEdge(int source, int target, int noise) {
+        // Edges are numbered from the adjacency of their smaller dense id
+        int node = Math.min(source, target);
+        int other = Math.max(source, target);
+        for (int slot = graph.getAdjacencyStart(node); slot < graph.getAdjacencyEnd(node); slot++) {
+            int edge = slotEdges[slot];
+            if (edge >= 0 && edgeTargets[edge] == other && edgeNoises[edge] == noise) {
+                return edge;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the quietest non-tree edge with exactly one vertex in the subtree below a tree edge.
+     * A non-tree edge crosses the cut of a tree edge if and only if its tree path goes through the tree edge, that is
+     * through the position of the child, so the answer is the quietest entry of the heaps of the segment tree nodes
+     * above that position (entries whose edge has another noise since are stale and dropped on the way).
+     * Complexity: O(log(n) log(m)) amortized, the heaps being built on the first call after a rebuild.
+     * @param edgeNumber: a tree edge.
+     * @return the minimum noise of the crossing edges (Integer.MAX_VALUE if there is none).
+     */
+    private int getMinimumCrossingNoise(int edgeNumber) {
+        if (coverQueues == null) {
+            coverQueues = new LongPriorityQueue[segmentTree.length];
+            nbCoverEntries = 0;
+            for (int edge = 0; edge < edgeNoises.length; edge++) {
+                if (!inTree[edge]) {
+                    coverPath(edge);
+                }
+            }
+            maxCoverEntries = 2 * nbCoverEntries + coverQueues.length;
+        }
+
+        int source = edgeSources[edgeNumber];
+        int child = parents[source] == edgeTargets[edgeNumber] ? source : edgeTargets[edgeNumber];
+        int minimumNoise = Integer.MAX_VALUE;
+        for (int i = positions[child] + graph.getNbNodes(); i > 0; i /= 2) {
+            LongPriorityQueue queue = coverQueues[i];
+            while (queue != null && !queue.isEmpty()) {
+                long entry = queue.peek();
+                if (edgeNoises[(int) entry] == (int) (entry >> 32)) {
+                    minimumNoise = Math.min(minimumNoise, (int) (entry >> 32));
+                    break;
+                }
+                queue.poll();
+                nbCoverEntries--;
+            }
+        }
+        return minimumNoise;
+    }
+
+    /**
+     * Adds a non-tree edge, with its current noise, to the heaps of the segment tree nodes covering its tree path.
+     * Complexity: O(log(n)^2 log(m)) (O(log(n)) heavy paths, each one being split into O(log(n)) nodes).
+     */
+    private void coverPath(int edge) {
+        int node1 = edgeSources[edge];
+        int node2 = edgeTargets[edge];
+        long entry = ((long) edgeNoises[edge] << 32) | edge;
+        while (heads[node1] != heads[node2]) {
+            if (depths[heads[node1]] < depths[heads[node2]]) {
+                int buffer = node1;
+                node1 = node2;
+                node2 = buffer;
+            }
+            coverRange(positions[heads[node1]], positions[node1], entry);
+            node1 = parents[heads[node1]];
+        }
+
+        // The LCA's own entry (edge to its parent) is not on the path
+        if (node1 != node2) {
+            int first = Math.min(positions[node1], positions[node2]);
+            int last = Math.max(positions[node1], positions[node2]);
+            coverRange(first + 1, last, entry);
+        }
+    }
+
+    private void coverRange(int first, int last, long entry) {
+        for (int low = first + graph.getNbNodes(), high = last + graph.getNbNodes() + 1; low < high; low /= 2, high /= 2) {
+            if ((low & 1) == 1) {
+                addCoverEntry(low++, entry);
+            }
+            if ((high & 1) == 1) {
+                addCoverEntry(--high, entry);
+            }
+        }
+    }
+
+    private void addCoverEntry(int node, long entry) {
+        if (coverQueues[node] == null) {
+            coverQueues[node] = new LongPriorityQueue(4);
+        }
+        coverQueues[node].add(entry);
+        nbCoverEntries++;
+    }
+
+    private int getMaximumNoiseOnPath(int node1, int node2) {
+        int maximumNoise = Integer.MIN_VALUE;
+
+        // Climb heavy paths from the deeper head until both nodes are on the same heavy path
+        while (heads[node1] != heads[node2]) {
+            if (depths[heads[node1]] < depths[heads[node2]]) {
+                int buffer = node1;
+                node1 = node2;
+                node2 = buffer;
+            }
+            maximumNoise = max(maximumNoise, querySegmentTree(positions[heads[node1]], positions[node1]));
+            node1 = parents[heads[node1]];
+        }
+
+        // The shallower node is the LCA, whose own entry (noise to its parent) is not on the path
+        if (node1 != node2) {
+            int first = Math.min(positions[node1], positions[node2]);
+            int last = Math.max(positions[node1], positions[node2]);
+            maximumNoise = max(maximumNoise, querySegmentTree(first + 1, last));
+        }
+        return maximumNoise;
+    }
+
+    /**
+     * Builds the minimum spanning forest with Kruskal's algorithm and decomposes it into heavy paths.
+     * Complexity: O(m log(m)) for the sort and O(n + m) for the decomposition.
+     */
+    private void buildDecomposition() {
+        int nbNodes = graph.getNbNodes();
+        int nbEdges = edgeNoises.length;
+
+        // Select the tree edges in increasing order of noise
+        long[] edgeQueue = new long[nbEdges];
+        for (int edge = 0; edge < nbEdges; edge++) {
+            edgeQueue[edge] = ((long) edgeNoises[edge] << 32) | edge;
+        }
+        Arrays.parallelSort(edgeQueue);
+        inTree = new boolean[nbEdges];
+        coverQueues = null;
+        UnionFind unionFind = new UnionFind(nbNodes);
+        for (long packed : edgeQueue) {
+            int edge = (int) packed;
+            inTree[edge] = unionFind.union(edgeSources[edge], edgeTargets[edge]);
+        }
+
+        // Compressed sparse row adjacency of the forest (edge numbers are enough to recover both ends and the noise)
+        int[] offsets = new int[nbNodes + 1];
+        for (int edge = 0; edge < nbEdges; edge++) {
+            if (inTree[edge]) {
+                offsets[edgeSources[edge] + 1]++;
+                offsets[edgeTargets[edge] + 1]++;
+            }
+        }
+        for (int v = 0; v < nbNodes; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] treeEdges = new int[offsets[nbNodes]];
+        int[] next = Arrays.copyOf(offsets, nbNodes);
+        for (int edge = 0; edge < nbEdges; edge++) {
+            if (inTree[edge]) {
+                treeEdges[next[edgeSources[edge]]++] = edge;
+                treeEdges[next[edgeTargets[edge]]++] = edge;
+            }
+        }
+
+        // First iterative depth first search: parents, depths and visit order
+        parents = new int[nbNodes];
+        depths = new int[nbNodes];
+        int[] noisesToParents = new int[nbNodes];
+        int[] order = new int[nbNodes];
+        int[] stack = new int[nbNodes];
+        Arrays.fill(parents, -1);
+        int time = 0;
+        for (int root = 0; root < nbNodes; root++) {
+            if (parents[root] >= 0) {
+                continue;
+            }
+            // This choice is completely arbitrary, any other node of the component could be chosen as the root
+            parents[root] = root;
+            noisesToParents[root] = Integer.MIN_VALUE;
+            int size = 0;
+            stack[size++] = root;
+            while (size > 0) {
+                int currentNode = stack[--size];
+                order[time++] = currentNode;
+                for (int i = offsets[currentNode]; i < offsets[currentNode + 1]; i++) {
+                    int edge = treeEdges[i];
+                    int nextNode = edgeSources[edge] == currentNode ? edgeTargets[edge] : edgeSources[edge];
+                    if (parents[nextNode] < 0) {
+                        parents[nextNode] = currentNode;
+                        depths[nextNode] = depths[currentNode] + 1;
+                        noisesToParents[nextNode] = edgeNoises[edge];
+                        stack[size++] = nextNode;
+                    }
+                }
+            }
+        }
+
+        // Subtree sizes and heavy children (children are visited after their parent)
+        sizes = new int[nbNodes];
+        int[] heavyChildren = new int[nbNodes];
+        Arrays.fill(heavyChildren, -1);
+        for (int i = nbNodes - 1; i >= 0; i--) {
+            int v = order[i];
+            sizes[v]++;
+            int parent = parents[v];
+            if (parent != v) {
+                sizes[parent] += sizes[v];
+                if (heavyChildren[parent] < 0 || sizes[heavyChildren[parent]] < sizes[v]) {
+                    heavyChildren[parent] = v;
+                }
+            }
+        }
+
+        // Second iterative depth first search (heavy child popped first): heads and positions
+        heads = new int[nbNodes];
+        positions = new int[nbNodes];
+        segmentTree = new int[2 * Math.max(nbNodes, 1)];
+        int position = 0;
+        for (int i = 0; i < nbNodes; i++) {
+            int root = order[i];
+            if (parents[root] != root) {
+                continue;
+            }
+            heads[root] = root;
+            int size = 0;
+            stack[size++] = root;
+            while (size > 0) {
+                int currentNode = stack[--size];
+                positions[currentNode] = position;
+                segmentTree[nbNodes + position++] = noisesToParents[currentNode];
+                for (int j = offsets[currentNode]; j < offsets[currentNode + 1]; j++) {
+                    int edge = treeEdges[j];
+                    int nextNode = edgeSources[edge] == currentNode ? edgeTargets[edge] : edgeSources[edge];
+                    if (nextNode != parents[currentNode] && nextNode != heavyChildren[currentNode]) {
+                        heads[nextNode] = nextNode;
+                        stack[size++] = nextNode;
+                    }
+                }
+                int heavyChild = heavyChildren[currentNode];
+                if (heavyChild >= 0) {
+                    heads[heavyChild] = heads[currentNode];
+                    stack[size++] = heavyChild;
+                }
+            }
+        }
+
+        // Range maximum segment tree (bottom-up, leaves at nbNodes .. 2 nbNodes - 1)
+        for (int i = nbNodes - 1; i > 0; i--) {
+            segmentTree[i] = max(segmentTree[2 * i], segmentTree[2 * i + 1]);
+        }
+    }
+
+    private void updateSegmentTree(int position, int noise) {
+        int i = position + graph.getNbNodes();
+        segmentTree[i] = noise;
+        for (i /= 2; i > 0; i /= 2) {
+            segmentTree[i] = max(segmentTree[2 * i], segmentTree[2 * i + 1]);
+        }
+    }
+
+    private int querySegmentTree(int first, int last) {
+        int maximumNoise = Integer.MIN_VALUE;
+        for (int low = first + graph.getNbNodes(), high = last + graph.getNbNodes() + 1; low < high; low /= 2, high /= 2) {
+            if ((low & 1) == 1) {
+                maximumNoise = max(maximumNoise, segmentTree[low++]);
+            }
+            if ((high & 1) == 1) {
+                maximumNoise = max(maximumNoise, segmentTree[--high]);
+            }
+        }
+        return maximumNoise;
+    }
+
+    @Override
+    public String toString() {
+        return "HeavyLightPathResolver";
+    }
+}
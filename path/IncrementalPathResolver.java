@@ -0,0 +1,221 @@
+package path;
+
+import graph.CompactGraph;
+import graph.Edge;
+import graph.Graph;
+import graph.LinkCutTree;
+import input.Query;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+public class IncrementalPathResolver extends OnlinePathResolver {
+    private LinkCutTree forest;
+    private int[] ids;
+    private int[] labels;
+    private int[] edgeSources;
+    private int[] edgeTargets;
+    private int nbEdges;
+    private long totalNoise;
+
+    /**
+     * Creates a path resolver that maintains a minimum spanning forest while edges are being added.
+     * Nodes and edges are both stored as ids of a link-cut tree (edges sit between their two nodes and hold the noise),
+     * so that the noisiest edge of a path can be found, cut and replaced in O(log(n)) amortized.
+     * By the cycle property, a new edge enters the forest if and only if it connects two trees, or if it is quieter than
+     * the noisiest edge of the forest path between its nodes (which then leaves the forest).
+     * The private attributes below represent different views of the forest.
+     * <li> - forest: the link-cut tree (node ids hold Integer.MIN_VALUE so that only edges can be a path's maximum).
+     * <li> - ids: the link-cut tree id of each node index (-1 if the node is not part of the forest).
+     * <li> - labels: the node index behind each link-cut tree id (-1 for edges).
+     * <li> - edgeSources/edgeTargets: the link-cut tree ids of the nodes of each edge (indexed by link-cut tree id).
+     * <li> - totalNoise: the total noise of the forest.
+     * Note: queries re-root the link-cut tree, so instances must not be shared between threads.
+     */
+    public IncrementalPathResolver() {
+        forest = new LinkCutTree(16);
+        ids = new int[16];
+        labels = new int[16];
+        edgeSources = new int[16];
+        edgeTargets = new int[16];
+        Arrays.fill(ids, -1);
+        nbEdges = 0;
+        totalNoise = 0;
+    }
+
+    /**
+     * Creates a path resolver that maintains the minimum spanning forest of a graph while edges are being added.
+     * @param graph: the initial graph.
+     */
+    public IncrementalPathResolver(Graph graph) {
+        this(graph.toCompactGraph());
+    }
+
+    /**
+     * Creates a path resolver that maintains the minimum spanning forest of a graph while edges are being added.
+     * Note: the initial forest is computed with Kruskal's algorithm, so no edge has to be cut while it is loaded.
+     * @param graph: the initial graph.
+     */
+    public IncrementalPathResolver(CompactGraph graph) {
+        this();
+        CompactGraph spanningForest = graph.getMinimumSpanningForest();
+        for (int v = 0; v < spanningForest.getNbNodes(); v++) {
+            for (int slot = spanningForest.getAdjacencyStart(v); slot < spanningForest.getAdjacencyEnd(v); slot++) {
+                int w = spanningForest.getNeighbor(slot);
+                if (v < w) {
+                    addEdge(spanningForest.getLabel(v), spanningForest.getLabel(w), spanningForest.getNoise(slot));
+                }
+            }
+        }
+    }
+
+    public boolean addEdge(Edge edge) {
+        return addEdge(edge.getSource().getIndex(), edge.getTarget().getIndex(), edge.getNoise());
+    }
+
+    /**
+     * Adds an edge to the graph and updates the minimum spanning forest.
+     * Complexity: O(log(n)) amortized.
+     * @param source: the index of one of the vertices of the edge.
+     * @param target: the index of the other vertex of the edge.
+     * @param noise: the noise assigned to the edge.
+     * @return true if the edge entered the minimum spanning forest, false otherwise.
+     */
+    public boolean addEdge(int source, int target, int noise) {
+        if (source == target) {
+            throw new RuntimeException("An edge must have two different nodes.");
+        }
+        int node1 = getOrAddNode(source);
+        int node2 = getOrAddNode(target);
+
+        // Connect two trees
+        if (!forest.isConnected(node1, node2)) {
+            link(forest.addNode(noise), node1, node2);
+            nbEdges++;
+            totalNoise += noise;
+            return true;
+        }
+
+        // Replace the noisiest edge of the cycle (its id is recycled for the new edge)
+        int noisiestEdge = forest.getMaximumOnPath(node1, node2);
+        int maximumNoise = forest.getValue(noisiestEdge);
+        if (maximumNoise <= noise) {
+            return false;
+        }
+        forest.cut(noisiestEdge, edgeSources[noisiestEdge]);
+        forest.cut(noisiestEdge, edgeTargets[noisiestEdge]);
+        forest.setValue(noisiestEdge, noise);
+        link(noisiestEdge, node1, node2);
+        totalNoise += noise - maximumNoise;
+        return true;
+    }
+
+    public int getMaximumNoise(Query query) {
+        return getMaximumNoise(query.getStart().getIndex(), query.getEnd().getIndex());
+    }
+
+    /**
+     * Computes the maximum noise on the current minimum spanning forest path between two nodes.
+     * Complexity: O(log(n)) amortized.
+     * @param start: the index of the beginning of the path.
+     * @param end: the index of the end of the path.
+     * @return the maximum noise, or UNREACHABLE if the nodes are in different components.
+     */
+    @Override
+    public int getMaximumNoise(int start, int end) {
+        int node1 = getNode(start);
+        int node2 = getNode(end);
+        if (node1 == node2) {
+            return 0;
+        }
+        if (!forest.isConnected(node1, node2)) {
+            return UNREACHABLE;
+        }
+        return forest.getValue(forest.getMaximumOnPath(node1, node2));
+    }
+
+    /**
+     * Computes the maximum noise of a batch of queries sequentially (queries re-root the link-cut tree).
+     * @param pool: ignored.
+     */
+    @Override
+    public void getMaximumNoises(int[] starts, int[] ends, int[] answers, ForkJoinPool pool) {
+        checkBatch(starts, ends, answers);
+        for (int i = 0; i < starts.length; i++) {
+            answers[i] = getMaximumNoise(starts[i], ends[i]);
+        }
+    }
+
+    public long getTotalNoise() {
+        return totalNoise;
+    }
+
+    /**
+     * Exports the current minimum spanning forest (for the resolvers that need a static tree).
+     * Complexity: O(n).
+     * @return the forest as a CompactGraph.
+     */
+    public CompactGraph getMinimumSpanningForest() {
+        int[] sources = new int[nbEdges];
+        int[] targets = new int[nbEdges];
+        int[] noises = new int[nbEdges];
+        int i = 0;
+        for (int id = 0; id < forest.getSize(); id++) {
+            if (labels[id] < 0) {
+                sources[i] = labels[edgeSources[id]];
+                targets[i] = labels[edgeTargets[id]];
+                noises[i++] = forest.getValue(id);
+            }
+        }
+        return new CompactGraph(nbEdges, sources, targets, noises);
+    }
+
+    private void link(int edge, int node1, int node2) {
+        ensureCapacity(edge);
+        labels[edge] = -1;
+        edgeSources[edge] = node1;
+        edgeTargets[edge] = node2;
+        forest.link(edge, node1);
+        forest.link(edge, node2);
+    }
+
+    private int getNode(int index) {
+        int node = index >= 0 && index < ids.length ? ids[index] : -1;
+        if (node < 0) {
+            throw new IllegalArgumentException(String.format("Graph does not contain Node(%s)", index));
+        }
+        return node;
+    }
+
+    private int getOrAddNode(int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Node indexes must be non-negative.");
+        }
+        if (index >= ids.length) {
+            int length = ids.length;
+            ids = Arrays.copyOf(ids, Math.max(2 * length, index + 1));
+            Arrays.fill(ids, length, ids.length, -1);
+        }
+        if (ids[index] < 0) {
+            int node = forest.addNode(Integer.MIN_VALUE);
+            ensureCapacity(node);
+            labels[node] = index;
+            ids[index] = node;
+        }
+        return ids[index];
+    }
+
+    private void ensureCapacity(int id) {
+        if (id >= labels.length) {
+            int capacity = Math.max(2 * labels.length, id + 1);
+            labels = Arrays.copyOf(labels, capacity);
+            edgeSources = Arrays.copyOf(edgeSources, capacity);
+            edgeTargets = Arrays.copyOf(edgeTargets, capacity);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "IncrementalPathResolver";
+    }
+}
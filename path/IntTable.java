@@ -0,0 +1,210 @@
+package path;
+
+import graph.SnapshotReader;
+import graph.SnapshotWriter;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.text.ParseException;
+
+public final class IntTable implements AutoCloseable {
+    public enum Storage {
+        HEAP, OFF_HEAP;
+    }
+
+    // Frees a direct buffer without waiting for the garbage collector (null if the JDK does not expose it)
+    private static final Object UNSAFE = findUnsafe();
+    private static final Method CLEANER = findCleaner();
+
+    private final int[][] heapRows;
+    private ByteBuffer[] buffers;
+    private IntBuffer[] offHeapRows;
+
+    /**
+     * Creates a table of ints made of rows of given lengths, initialized to 0.
+     * <li> - heapRows: the rows as int[] (HEAP storage, null otherwise), the default and fastest to read.
+     * <li> - buffers: the rows as direct buffers in the native byte order (OFF_HEAP storage, null otherwise), outside of
+     *        the heap so the garbage collector never scans or copies them, and freed deterministically by close().
+     * <li> - offHeapRows: the int views of the direct buffers.
+     * A single class holds both storages (rather than one subclass each), so that reads are a predictable branch the
+     * JIT compiler can hoist out of loops, instead of a virtual call.
+     * Note: an off-heap row holds at most 2^29 ints (2 GB) and the direct memory is bounded by -XX:MaxDirectMemorySize
+     * (the maximum heap size by default). Java 17 has no final foreign memory API, so the buffers are freed through
+     * sun.misc.Unsafe.invokeCleaner() (looked up reflectively; if it is missing, the garbage collector frees them).
+     * @param storage: where the rows are stored.
+     * @param rowLengths: the number of ints of each row.
+     */
+    private IntTable(Storage storage, int[] rowLengths) {
+        heapRows = storage == Storage.HEAP ? new int[rowLengths.length][] : null;
+        switch (storage) {
+            case HEAP:
+                for (int row = 0; row < rowLengths.length; row++) {
+                    heapRows[row] = new int[rowLengths[row]];
+                }
+                break;
+            case OFF_HEAP:
+                buffers = new ByteBuffer[rowLengths.length];
+                offHeapRows = new IntBuffer[rowLengths.length];
+                for (int row = 0; row < rowLengths.length; row++) {
+                    if (rowLengths[row] > Integer.MAX_VALUE / 4) {
+                        throw new IllegalArgumentException("An off-heap row cannot hold more than 2^29 ints.");
+                    }
+                    buffers[row] = ByteBuffer.allocateDirect(4 * rowLengths[row]).order(ByteOrder.nativeOrder());
+                    offHeapRows[row] = buffers[row].asIntBuffer();
+                }
+                break;
+            default:
+                throw new RuntimeException("Unrecognized storage.");
+        }
+    }
+
+    /**
+     * Creates a read-only table over rows mapped from a snapshot (off the heap, in the page cache of the file).
+     */
+    private IntTable(ByteBuffer[] buffers) {
+        heapRows = null;
+        this.buffers = buffers;
+        offHeapRows = new IntBuffer[buffers.length];
+        for (int row = 0; row < buffers.length; row++) {
+            offHeapRows[row] = buffers[row].asIntBuffer();
+        }
+    }
+
+    public static IntTable allocate(Storage storage, int[] rowLengths) {
+        return new IntTable(storage, rowLengths);
+    }
+
+    public static IntTable allocate(Storage storage, int nbRows, int nbColumns) {
+        int[] rowLengths = new int[nbRows];
+        for (int row = 0; row < nbRows; row++) {
+            rowLengths[row] = nbColumns;
+        }
+        return new IntTable(storage, rowLengths);
+    }
+
+    /**
+     * Maps a table written by write() without copying it: the rows are only loaded from the file as they are read, and
+     * the table is read-only (set() throws a ReadOnlyBufferException). close() unmaps the rows.
+     * @param reader: the snapshot, positioned at the table.
+     * @return the table.
+     */
+    public static IntTable read(SnapshotReader reader) throws IOException, ParseException {
+        int nbRows = reader.readInt();
+        if (nbRows < 0) {
+            throw new ParseException("The snapshot holds an invalid table.", 0);
+        }
+        ByteBuffer[] buffers = new ByteBuffer[nbRows];
+        for (int row = 0; row < nbRows; row++) {
+            buffers[row] = reader.readBuffer();
+        }
+        return new IntTable(buffers);
+    }
+
+    /**
+     * Writes the rows of the table, to be mapped by read().
+     * @param writer: the snapshot being written.
+     */
+    public void write(SnapshotWriter writer) throws IOException {
+        int nbRows = heapRows != null ? heapRows.length : offHeapRows.length;
+        writer.writeInt(nbRows);
+        for (int row = 0; row < nbRows; row++) {
+            if (heapRows != null) {
+                writer.writeInts(heapRows[row]);
+            } else {
+                writer.writeInts(offHeapRows[row].duplicate().clear());
+            }
+        }
+    }
+
+    public int get(int row, int column) {
+        return heapRows != null ? heapRows[row][column] : offHeapRows[row].get(column);
+    }
+
+    public void set(int row, int column, int value) {
+        if (heapRows != null) {
+            heapRows[row][column] = value;
+        } else {
+            offHeapRows[row].put(column, value);
+        }
+    }
+
+    /**
+     * Fills a row with the given values (a heap table keeps the array itself, so it must not be modified afterwards).
+     * @param row: the row to be filled.
+     * @param values: as many values as the length of the row.
+     */
+    public void setRow(int row, int[] values) {
+        if (values.length != getLength(row)) {
+            throw new IllegalArgumentException("The values must fill the row.");
+        }
+        if (heapRows != null) {
+            heapRows[row] = values;
+        } else {
+            offHeapRows[row].put(0, values);
+        }
+    }
+
+    public int getLength(int row) {
+        return heapRows != null ? heapRows[row].length : offHeapRows[row].capacity();
+    }
+
+    /**
+     * @return the number of bytes held by the table (on or off the heap).
+     */
+    public long getFootprint() {
+        int nbRows = heapRows != null ? heapRows.length : offHeapRows.length;
+        long footprint = 0;
+        for (int row = 0; row < nbRows; row++) {
+            footprint += 4L * getLength(row);
+        }
+        return footprint;
+    }
+
+    public boolean isOffHeap() {
+        return heapRows == null;
+    }
+
+    /**
+     * Releases the memory of an off-heap table, or unmaps a mapped one (a no-op on the heap); the table must not be read
+     * afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        if (buffers == null) {
+            return;
+        }
+        if (UNSAFE != null && CLEANER != null) {
+            for (ByteBuffer buffer : buffers) {
+                try {
+                    CLEANER.invoke(UNSAFE, buffer);
+                } catch (ReflectiveOperationException e) {
+                    throw new RuntimeException("There was a problem freeing an off-heap table: " + e.getMessage());
+                }
+            }
+        }
+        buffers = null;
+        offHeapRows = new IntBuffer[0];
+    }
+
+    private static Object findUnsafe() {
+        try {
+            Field field = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return field.get(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Method findCleaner() {
+        try {
+            return Class.forName("sun.misc.Unsafe").getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package path;
+
+import graph.CompactGraph;
+import graph.Edge;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+public final class Itinerary {
+    private final LCAPathResolver resolver;
+    private final CompactGraph tree;
+    private final int start;
+    private final int end;
+    private final int nbUpHops;
+    private final int nbDownHops;
+
+    /**
+     * Creates the most pleasant itinerary between two nodes of a tree: up from the start to their lowest common ancestor,
+     * then down to the end. Nothing is materialized, every node and hop is read from the tables of the resolver:
+     * <li> - resolver: the resolver whose tables (parents, ancestors, maximum noises) the itinerary reads.
+     * <li> - tree: the tree (used to translate dense ids into node indexes).
+     * <li> - start: the dense id of the beginning of the itinerary.
+     * <li> - end: the dense id of the end of the itinerary.
+     * <li> - nbUpHops: the number of hops from the start up to the lowest common ancestor.
+     * <li> - nbDownHops: the number of hops from the lowest common ancestor down to the end.
+     * Hop i goes from node i to node i + 1 (nodes are numbered 0 .. getNbHops() along the itinerary).
+     */
+    Itinerary(LCAPathResolver resolver, CompactGraph tree, int start, int end, int nbUpHops, int nbDownHops) {
+        this.resolver = resolver;
+        this.tree = tree;
+        this.start = start;
+        this.end = end;
+        this.nbUpHops = nbUpHops;
+        this.nbDownHops = nbDownHops;
+    }
+
+    public int getNbHops() {
+        return nbUpHops + nbDownHops;
+    }
+
+    public int getStart() {
+        return tree.getLabel(start);
+    }
+
+    public int getEnd() {
+        return tree.getLabel(end);
+    }
+
+    /**
+     * Complexity: O(log(d)) where d = the maximum depth of the tree (a jump through the ancestors).
+     * @param position: the position of the node along the itinerary (0 .. getNbHops()).
+     * @return the index of the node.
+     */
+    public int getNode(int position) {
+        return tree.getLabel(getId(position));
+    }
+
+    /**
+     * Complexity: O(log(d)).
+     * @param hop: the hop (0 .. getNbHops() - 1).
+     * @return the noise of the edge between nodes hop and hop + 1.
+     */
+    public int getNoise(int hop) {
+        checkHop(hop);
+        return resolver.getNoiseToParent(hop < nbUpHops ? getId(hop) : getId(hop + 1));
+    }
+
+    /**
+     * Finds the hop with the maximum noise (the first one on the way up to the lowest common ancestor, or the last
+     * one on the way down if the down part holds the strictly noisiest hops).
+     * Complexity: O(log(d)) (the maximum noise of each part, then a search through the ancestors of the noisiest one).
+     * @return the hop (-1 if the itinerary is a single node).
+     */
+    public int getBottleneck() {
+        int upNoise = resolver.getMaximumNoiseUp(start, nbUpHops);
+        int downNoise = resolver.getMaximumNoiseUp(end, nbDownHops);
+        if (nbUpHops > 0 && upNoise >= downNoise) {
+            return resolver.findFirstHop(start, upNoise);
+        } else if (nbDownHops > 0) {
+            return getNbHops() - 1 - resolver.findFirstHop(end, downNoise);
+        }
+        return -1;
+    }
+
+    /**
+     * Complexity: O(log(d)).
+     * @return the maximum noise along the itinerary (0 if it is a single node).
+     */
+    public int getMaximumNoise() {
+        return Math.max(resolver.getMaximumNoiseUp(start, nbUpHops), resolver.getMaximumNoiseUp(end, nbDownHops));
+    }
+
+    /**
+     * Lists the nodes along the itinerary lazily: the way up is followed one parent at a time, while the way down is
+     * collected in chunks of doubling size (each chunk jumps to its deepest node, then follows the parents upwards).
+     * Complexity: O(k + log(d) log(k)) for the first k nodes, O(length + log(d) log(length)) for the whole itinerary.
+     * @return an iterator over the indexes of the nodes, from the start to the end.
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int position = 0;
+            private int current = start;
+            private int[] chunk = new int[0];
+            private int chunkStart = 0;
+
+            @Override
+            public boolean hasNext() {
+                return position <= getNbHops();
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (position > nbUpHops) {
+                    if (position - chunkStart >= chunk.length) {
+                        fillChunk();
+                    }
+                    current = chunk[position - chunkStart];
+                } else if (position > 0) {
+                    current = resolver.getParent(current);
+                }
+                position++;
+                return tree.getLabel(current);
+            }
+
+            private void fillChunk() {
+                int length = Math.min(Math.max(8, 2 * chunk.length), getNbHops() + 1 - position);
+                chunk = new int[length];
+                chunkStart = position;
+                int node = resolver.getAncestor(end, getNbHops() - (position + length - 1));
+                for (int i = length - 1; i >= 0; i--) {
+                    chunk[i] = node;
+                    node = resolver.getParent(node);
+                }
+            }
+        };
+    }
+
+    /**
+     * Complexity: O(length of the itinerary).
+     * @return the indexes of the nodes along the itinerary, from the start to the end (getNbHops() + 1 nodes).
+     */
+    public int[] toArray() {
+        int[] ids = toIds();
+        for (int position = 0; position < ids.length; position++) {
+            ids[position] = tree.getLabel(ids[position]);
+        }
+        return ids;
+    }
+
+    /**
+     * Complexity: O(length of the itinerary).
+     * @return the edges along the itinerary in order (as NaivePathResolver.getOrderedPath()).
+     */
+    public Collection<Edge> toEdges() {
+        int[] ids = toIds();
+        Collection<Edge> edges = new ArrayList<>(getNbHops());
+        for (int hop = 0; hop < getNbHops(); hop++) {
+            int noise = resolver.getNoiseToParent(hop < nbUpHops ? ids[hop] : ids[hop + 1]);
+            edges.add(new Edge(tree.getNode(ids[hop]), tree.getNode(ids[hop + 1]), noise));
+        }
+        return edges;
+    }
+
+    private int[] toIds() {
+        int[] ids = new int[getNbHops() + 1];
+        int current = start;
+        ids[0] = current;
+        for (int position = 1; position <= nbUpHops; position++) {
+            current = resolver.getParent(current);
+            ids[position] = current;
+        }
+        current = end;
+        for (int position = ids.length - 1; position > nbUpHops; position--) {
+            ids[position] = current;
+            current = resolver.getParent(current);
+        }
+        return ids;
+    }
+
+    private int getId(int position) {
+        if (position < 0 || position > getNbHops()) {
+            throw new IndexOutOfBoundsException(String.format("Position %s out of 0 .. %s", position, getNbHops()));
+        }
+        return position <= nbUpHops
+            ? resolver.getAncestor(start, position)
+            : resolver.getAncestor(end, getNbHops() - position);
+    }
+
+    private void checkHop(int hop) {
+        if (hop < 0 || hop >= getNbHops()) {
+            throw new IndexOutOfBoundsException(String.format("Hop %s out of 0 .. %s", hop, getNbHops() - 1));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Itinerary(%s -> %s, %s hops)", getStart(), getEnd(), getNbHops());
+    }
+}
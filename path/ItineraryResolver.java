@@ -0,0 +1,11 @@
+package path;
+
+public interface ItineraryResolver {
+    /**
+     * Reconstructs the most pleasant itinerary between two nodes (only resolvers that keep the parents of the tree can).
+     * @param start: the index of the beginning of the itinerary.
+     * @param end: the index of the end of the itinerary.
+     * @return the itinerary, or null if the nodes are in different components.
+     */
+    Itinerary getItinerary(int start, int end);
+}
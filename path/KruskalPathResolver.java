@@ -0,0 +1,237 @@
+package path;
+
+import graph.CompactGraph;
+import graph.Graph;
+import graph.SnapshotReader;
+import graph.SnapshotWriter;
+import graph.UnionFind;
+import input.Query;
+
+import java.io.IOException;
+import java.text.ParseException;
+
+public class KruskalPathResolver extends OnlinePathResolver {
+    private final CompactGraph graph;
+    private final IntTable positions;
+    private final IntTable sparseTable;
+
+    /**
+     * Creates a path resolver based on the Kruskal reconstruction tree of a graph.
+     * Running Kruskal's algorithm, every union of two components creates a new node (weighted by the noise of the edge)
+     * whose children are the nodes of the two components: the nodes of the graph are the leaves and the maximum noise
+     * on the minimum spanning tree path between two leaves is the weight of their LCA.
+     * Along an Euler tour of the reconstruction tree, the shallowest node between two consecutive leaves is their LCA,
+     * so the tour is compressed to the leaves and the weights of these LCAs (which increase towards the root).
+     * The private attributes below represent different views of the graph for caching purposes.
+     * <li> - graph: the graph itself (used to translate node indexes and tell apart its components).
+     * <li> - positions: the position of each dense id among the leaves of the Euler tour (a single row).
+     * <li> - sparseTable: sparseTable(k, i) is the maximum LCA weight between the leaves at positions i .. i + 2^k.
+     * Note: the minimum spanning tree is never built, the graph itself is given to the resolver.
+     * @param graph: the graph where the path is to be computed on (not necessarily a tree).
+     */
+    public KruskalPathResolver(Graph graph) {
+        this(graph.toCompactGraph());
+    }
+
+    /**
+     * Creates a path resolver based on the Kruskal reconstruction tree of the compressed sparse row representation.
+     * @param graph: the graph where the path is to be computed on (not necessarily a tree).
+     */
+    public KruskalPathResolver(CompactGraph graph) {
+        this(graph, IntTable.Storage.HEAP);
+    }
+
+    /**
+     * Creates a path resolver based on the Kruskal reconstruction tree whose tables are stored as requested.
+     * @param graph: the graph where the path is to be computed on (not necessarily a tree).
+     * @param storage: where the tables are stored (off the heap, they are freed by close()).
+     */
+    public KruskalPathResolver(CompactGraph graph, IntTable.Storage storage) {
+        this.graph = graph;
+        int nbNodes = graph.getNbNodes();
+        int nbTreeNodes = 2 * nbNodes - graph.getNbComponents();
+
+        // Build the reconstruction tree through a single union-find pass over the sorted edges
+        // Internal node k (k >= n) is stored at k - n in the arrays below
+        // Complexity: O(m log(m)) for the sort and O(m alpha(n)) for the union-find pass
+        int nbInternalNodes = nbTreeNodes - nbNodes;
+        int[] leftChildren = new int[nbInternalNodes];
+        int[] rightChildren = new int[nbInternalNodes];
+        int[] weights = new int[nbInternalNodes];
+        int[] setNodes = new int[nbNodes];
+        for (int v = 0; v < nbNodes; v++) {
+            setNodes[v] = v;
+        }
+
+        UnionFind unionFind = new UnionFind(nbNodes);
+        long[] edges = graph.getEdgesByNoise();
+        int nbAdded = 0;
+        for (int i = 0; i < edges.length && nbAdded < nbInternalNodes; i++) {
+            int source = (int) (edges[i] >>> 32);
+            int slot = (int) edges[i];
+            int root1 = unionFind.find(source);
+            int root2 = unionFind.find(graph.getNeighbor(slot));
+            if (unionFind.union(root1, root2)) {
+                leftChildren[nbAdded] = setNodes[root1];
+                rightChildren[nbAdded] = setNodes[root2];
+                weights[nbAdded] = graph.getNoise(slot);
+                setNodes[unionFind.find(root1)] = nbNodes + nbAdded++;
+            }
+        }
+
+        // Walk the Euler tour of each component's reconstruction tree with an explicit stack
+        // Internal nodes are pushed back as negative markers between their left and right subtrees
+        // Complexity: O(n)
+        int[] leafPositions = new int[nbNodes];
+        int[] gaps = new int[Math.max(nbNodes - 1, 0)];
+        int[] stack = new int[2 * nbTreeNodes + 1];
+        boolean[] visited = new boolean[nbNodes];
+        int position = 0;
+        for (int v = 0; v < nbNodes; v++) {
+            int root = unionFind.find(v);
+            if (visited[root]) {
+                continue;
+            }
+            visited[root] = true;
+
+            // Gaps between components are never read (their queries are unreachable)
+            int gap = UNREACHABLE;
+            int size = 0;
+            stack[size++] = setNodes[root];
+            while (size > 0) {
+                int treeNode = stack[--size];
+                if (treeNode < 0) {
+                    gap = weights[~treeNode];
+                } else if (treeNode < nbNodes) {
+                    if (position > 0) {
+                        gaps[position - 1] = gap;
+                    }
+                    leafPositions[treeNode] = position++;
+                } else {
+                    int k = treeNode - nbNodes;
+                    stack[size++] = rightChildren[k];
+                    stack[size++] = ~k;
+                    stack[size++] = leftChildren[k];
+                }
+            }
+        }
+
+        // Range maximum over the gaps through a sparse table
+        // Complexity: O(n log(n))
+        int nbLevels = gaps.length == 0 ? 1 : 32 - Integer.numberOfLeadingZeros(gaps.length);
+        int[] rowLengths = new int[nbLevels];
+        for (int k = 0; k < nbLevels; k++) {
+            rowLengths[k] = Math.max(gaps.length - (1 << k) + 1, 0);
+        }
+        positions = IntTable.allocate(storage, 1, nbNodes);
+        positions.setRow(0, leafPositions);
+        sparseTable = IntTable.allocate(storage, rowLengths);
+        sparseTable.setRow(0, gaps);
+        for (int k = 1; k < nbLevels; k++) {
+            int half = 1 << (k - 1);
+            for (int i = 0; i < rowLengths[k]; i++) {
+                sparseTable.set(k, i, max(sparseTable.get(k - 1, i), sparseTable.get(k - 1, i + half)));
+            }
+        }
+    }
+
+    private KruskalPathResolver(CompactGraph graph, IntTable positions, IntTable sparseTable) {
+        this.graph = graph;
+        this.positions = positions;
+        this.sparseTable = sparseTable;
+    }
+
+    /**
+     * Restores a resolver written by write() without building its tables again (they are mapped from the snapshot).
+     * @param reader: the snapshot, positioned at the resolver.
+     * @param graph: the graph the resolver was built on.
+     * @return the resolver.
+     * @throws ParseException: if the tables do not match the graph.
+     */
+    static KruskalPathResolver read(SnapshotReader reader, CompactGraph graph) throws IOException, ParseException {
+        KruskalPathResolver resolver = new KruskalPathResolver(graph, IntTable.read(reader), IntTable.read(reader));
+        int nbNodes = graph.getNbNodes();
+        if (resolver.positions.getFootprint() != 4L * nbNodes
+                || resolver.sparseTable.getLength(0) != Math.max(nbNodes - 1, 0)) {
+            resolver.close();
+            throw new ParseException("The snapshot holds tables that do not match the graph.", 0);
+        }
+        return resolver;
+    }
+
+    void write(SnapshotWriter writer) throws IOException {
+        positions.write(writer);
+        sparseTable.write(writer);
+    }
+
+    public int getMaximumNoise(Query query) {
+        return getMaximumNoise(query.getStart().getIndex(), query.getEnd().getIndex());
+    }
+
+    /**
+     * Computes the maximum noise on the minimum spanning tree path between two nodes.
+     * Complexity: O(1) (two lookups in the sparse table).
+     * @param start: the index of the beginning of the path.
+     * @param end: the index of the end of the path.
+     * @return the maximum noise, or UNREACHABLE if the nodes are in different components.
+     */
+    @Override
+    public int getMaximumNoise(int start, int end) {
+        int node1 = graph.getId(start);
+        int node2 = graph.getId(end);
+        if (!graph.isConnected(node1, node2)) {
+            return UNREACHABLE;
+        }
+        if (node1 == node2) {
+            return 0;
+        }
+
+        // The LCA of the two leaves is the highest LCA of consecutive leaves between them
+        int position1 = positions.get(0, node1);
+        int position2 = positions.get(0, node2);
+        int first = Math.min(position1, position2);
+        int last = Math.max(position1, position2) - 1;
+        int k = 31 - Integer.numberOfLeadingZeros(last - first + 1);
+        return max(sparseTable.get(k, first), sparseTable.get(k, last - (1 << k) + 1));
+    }
+
+    CompactGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the position of a dense id among the leaves of the Euler tour.
+     */
+    int getPosition(int node) {
+        return positions.get(0, node);
+    }
+
+    int getNbLevels() {
+        return sparseTable.getLength(0) == 0 ? 0 : 32 - Integer.numberOfLeadingZeros(sparseTable.getLength(0));
+    }
+
+    /**
+     * @return the maximum LCA weight between the leaves at positions i .. i + 2^k.
+     */
+    int getGapMaximum(int k, int i) {
+        return sparseTable.get(k, i);
+    }
+
+    /**
+     * @return the number of bytes held by the tables (on or off the heap).
+     */
+    public long getFootprint() {
+        return positions.getFootprint() + sparseTable.getFootprint();
+    }
+
+    @Override
+    public void close() {
+        positions.close();
+        sparseTable.close();
+    }
+
+    @Override
+    public String toString() {
+        return "KruskalPathResolver";
+    }
+}
@@ -1,152 +1,433 @@
 package path;
 
-import graph.Edge;
+import graph.CompactGraph;
 import graph.Graph;
 import graph.Node;
+import graph.RangeTask;
+import graph.SnapshotReader;
+import graph.SnapshotWriter;
 import input.Query;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
-public class LCAPathResolver extends PathResolver {
-    private Node root;
-    private HashMap<Node, HashMap<Integer, Node>> parentsMap;
-    private HashMap<Node, HashMap<Integer, Integer>> maxNoiseMap;
-    private HashMap<Node, Integer> depthMap;
+public class LCAPathResolver extends OnlinePathResolver implements ItineraryResolver {
+    private final CompactGraph tree;
+    private final int nbLevels;
+    private final IntTable depths;
+    private final IntTable ancestors;
+    private final IntTable maxNoises;
 
     /**
      * Creates a path resolver based on the Lowest Common Ancestor.
      * A LCA path resolver identifies the lowest common ancestor of the query's extremities to compute the path.
-     * The private attributes below represent different views of the graph for caching purposes.
-     * <li> - root: the root of the tree (chosen arbitrarily).
-     * <li> - parentsMap: hash map of parents with depths 2^0 .. 2^(log(maxDepth)).
-     * <li> - maxNoiseMap: list of maximum noise to each parent in parentsMap.
-     * <li> - depthMap: the depth of the node with respect to the tree's root.
+     * The private attributes below represent different views of the graph for caching purposes (indexed by dense id).
+     * <li> - tree: the tree itself (used to translate node indexes and tell apart the components of a forest).
+     * <li> - nbLevels: number of levels of the tables below (log2 of the maximum depth, rounded up).
+     * <li> - depths: the depth of the node with respect to its component's root (a single row).
+     * <li> - ancestors: ancestors(k, v) is the ancestor of v at distance 2^k (the root if the distance is too long).
+     * <li> - maxNoises: maxNoises(k, v) is the maximum noise between v and ancestors(k, v).
      * @param tree: the graph where the path is to be computed on.
      */
     public LCAPathResolver(Graph tree) {
-        // This choice is completely arbitrary, any other node could be chosen as the root
-        root = tree.getNodeIterator().next();
-        parentsMap = new HashMap<>();
-        maxNoiseMap = new HashMap<>();
-        depthMap = new HashMap<>();
-
-        // Populate root
-        parentsMap.put(root, new HashMap<>());
-        maxNoiseMap.put(root, new HashMap<>());
-        depthMap.put(root, 0);
-
-        // Populate the direct parents through a depth first search
+        this(tree.toCompactGraph());
+    }
+
+    /**
+     * Creates a path resolver based on the Lowest Common Ancestor on the compressed sparse row representation of the tree.
+     * @param tree: the graph where the path is to be computed on.
+     */
+    public LCAPathResolver(CompactGraph tree) {
+        this(tree, null);
+    }
+
+    /**
+     * Creates a path resolver based on the Lowest Common Ancestor whose tables are built in parallel.
+     * The direct parents are found through a breadth first search whose frontiers are expanded in parallel, then each
+     * level of the tables is computed in parallel over ranges of dense ids (level k only reads level k - 1, so the
+     * levels are separated by a barrier).
+     * Note: the resulting tables are the same as the sequential ones (the roots are the same and a tree has a single
+     * path between two nodes), but the graph must be a forest.
+     * @param tree: the graph where the path is to be computed on.
+     * @param pool: the pool building the tables (null to build them on the calling thread).
+     */
+    public LCAPathResolver(CompactGraph tree, ForkJoinPool pool) {
+        this(tree, pool, IntTable.Storage.HEAP);
+    }
+
+    /**
+     * Creates a path resolver based on the Lowest Common Ancestor whose tables are stored as requested.
+     * Note: the direct parents are found on the heap (O(n) transient memory), then the tables are filled level by level.
+     * @param tree: the graph where the path is to be computed on.
+     * @param pool: the pool building the tables (null to build them on the calling thread).
+     * @param storage: where the tables are stored (off the heap, they are freed by close()).
+     */
+    public LCAPathResolver(CompactGraph tree, ForkJoinPool pool, IntTable.Storage storage) {
+        this.tree = tree;
+        int nbNodes = tree.getNbNodes();
+        int[] nodeDepths = new int[nbNodes];
+        int[] parents = new int[nbNodes];
+        int[] noisesToParents = new int[nbNodes];
+
+        // Populate the direct parents through a search from each component's root
         // Complexity: O(n + m) because we need to go through all nodes and all edges (n = nbNodes, m = nbEdges)
-        populateAdjacentParents(tree, root, 0);
+        int maxDepth = pool == null
+            ? populateAdjacentParents(nodeDepths, parents, noisesToParents)
+            : populateAdjacentParents(nodeDepths, parents, noisesToParents, pool);
 
         // Populate k-parents (k-parent is the parent of distance 2^k)
-        // Complexity: O(n log(n)) because d varies in {1 .. 2^log(n)} and for each d we go through all nodes
-        int nbNodes = parentsMap.keySet().size();
-        for (int d = 1; d < nbNodes; d *= 2) {
-            for (Node node : parentsMap.keySet()) {
-                Node kParent = parentsMap.get(node).get(d);
-                Integer maxNoiseToKParent = maxNoiseMap.get(node).get(d);
-                if (kParent != null) {
-                    Node kGrandParent = parentsMap.get(kParent).get(d);
-                    Integer maxNoiseToKGrandParent = maxNoiseMap.get(kParent).get(d);
-                    if (kGrandParent != null) {
-                        parentsMap.get(node).put(2*d, kGrandParent);
-                        maxNoiseMap.get(node).put(2*d, max(maxNoiseToKParent, maxNoiseToKGrandParent));
-                    }
+        // Complexity: O(n log(d)) because k varies in {0 .. log(d)} and for each k we go through all nodes
+        nbLevels = Math.max(1, 32 - Integer.numberOfLeadingZeros(maxDepth));
+        depths = IntTable.allocate(storage, 1, nbNodes);
+        ancestors = IntTable.allocate(storage, nbLevels, nbNodes);
+        maxNoises = IntTable.allocate(storage, nbLevels, nbNodes);
+        depths.setRow(0, nodeDepths);
+        ancestors.setRow(0, parents);
+        maxNoises.setRow(0, noisesToParents);
+        for (int k = 1; k < nbLevels; k++) {
+            int level = k;
+            RangeTask.invoke(pool, (from, to) -> {
+                for (int v = from; v < to; v++) {
+                    int kParent = ancestors.get(level - 1, v);
+                    ancestors.set(level, v, ancestors.get(level - 1, kParent));
+                    maxNoises.set(level, v, max(maxNoises.get(level - 1, v), maxNoises.get(level - 1, kParent)));
                 }
-            }
+            }, 0, nbNodes);
         }
     }
 
-    public int getMaximumNoise(Query query) {
-        Node node1 = query.getStart();
-        Node node2 = query.getEnd();
-        Node lca = findLowestCommonAncestor(node1, node2);
+    private LCAPathResolver(CompactGraph tree, int nbLevels, IntTable depths, IntTable ancestors, IntTable maxNoises) {
+        this.tree = tree;
+        this.nbLevels = nbLevels;
+        this.depths = depths;
+        this.ancestors = ancestors;
+        this.maxNoises = maxNoises;
+    }
+
+    /**
+     * Restores a resolver written by write() without building its tables again (they are mapped from the snapshot).
+     * @param reader: the snapshot, positioned at the resolver.
+     * @param tree: the tree the resolver was built on.
+     * @return the resolver.
+     * @throws ParseException: if the tables do not match the tree.
+     */
+    static LCAPathResolver read(SnapshotReader reader, CompactGraph tree) throws IOException, ParseException {
+        int nbLevels = reader.readInt();
+        IntTable depths = IntTable.read(reader);
+        IntTable ancestors = IntTable.read(reader);
+        IntTable maxNoises = IntTable.read(reader);
+        LCAPathResolver resolver = new LCAPathResolver(tree, nbLevels, depths, ancestors, maxNoises);
+        int nbNodes = tree.getNbNodes();
+        if (nbLevels < 1 || depths.getFootprint() != 4L * nbNodes || ancestors.getFootprint() != 4L * nbLevels * nbNodes
+                || maxNoises.getFootprint() != 4L * nbLevels * nbNodes) {
+            resolver.close();
+            throw new ParseException("The snapshot holds tables that do not match the tree.", 0);
+        }
+        return resolver;
+    }
 
-        // Complexity: O(log(d)) where d = distance(lca, node)
-        int maximumNoise1 = getMaximumNoiseAtDistance(lca, node1);
-        int maximumNoise2 = getMaximumNoiseAtDistance(lca, node2);
-        return max(maximumNoise1, maximumNoise2);
+    void write(SnapshotWriter writer) throws IOException {
+        writer.writeInt(nbLevels);
+        depths.write(writer);
+        ancestors.write(writer);
+        maxNoises.write(writer);
     }
 
-    public Node findLowestCommonAncestor(Node node1, Node node2) {
-        if (node1.equals(root) || node2.equals(root)) {
-            return root;
+    public int getMaximumNoise(Query query) {
+        return getMaximumNoise(query.getStart().getIndex(), query.getEnd().getIndex());
+    }
+
+    /**
+     * Computes the maximum noise on the path between two nodes without allocating any object.
+     * The lowest common ancestor is found and the maximum noise is accumulated in the same pass.
+     * Complexity: O(log(d)) where d = the maximum depth of the tree.
+     * @param start: the index of the beginning of the path.
+     * @param end: the index of the end of the path.
+     * @return the maximum noise, or UNREACHABLE if the nodes are in different components.
+     */
+    @Override
+    public int getMaximumNoise(int start, int end) {
+        int node1 = tree.getId(start);
+        int node2 = tree.getId(end);
+        if (!tree.isConnected(node1, node2)) {
+            return UNREACHABLE;
         }
 
         // Node 'node1' will be the one with smaller depth
-        if (depthMap.get(node1) > depthMap.get(node2)) {
-            Node buffer = node1;
+        if (depths.get(0, node1) > depths.get(0, node2)) {
+            int buffer = node1;
             node1 = node2;
             node2 = buffer;
         }
 
         // Balance depth between the two nodes logarithmically
-        // Complexity: O(log(d)) where d = distance(node1, node2)
-        int biggestPowerOf2;
-        int remainingDistance = depthMap.get(node2) - depthMap.get(node1);
-        while (remainingDistance > 0) {
-            biggestPowerOf2 = Integer.highestOneBit(remainingDistance);
-            remainingDistance = remainingDistance - biggestPowerOf2;
-            node2 = parentsMap.get(node2).get(biggestPowerOf2);
+        int maximumNoise = 0;
+        int remainingDistance = depths.get(0, node2) - depths.get(0, node1);
+        for (int k = 0; remainingDistance > 0; k++, remainingDistance >>>= 1) {
+            if ((remainingDistance & 1) != 0) {
+                maximumNoise = max(maximumNoise, maxNoises.get(k, node2));
+                node2 = ancestors.get(k, node2);
+            }
         }
-
-        if (node1.equals(node2)) {
-            return node1;
+        if (node1 == node2) {
+            return maximumNoise;
         }
 
         // Reduce the distance to the LCA logarithmically
-        // Start from the highest bit possible for max depth (worst-case is a straight line, where max depth = n)
-        // Complexity: O(log(d)) where d = distance(node1, lca) (lca is unknown but unique)
-        Node kParent1;
-        Node kParent2;
-        int distance = Integer.highestOneBit(parentsMap.keySet().size());
-        for (int k = distance; k > 0; k /= 2) {
-            kParent1 = parentsMap.get(node1).get(k);
-            kParent2 = parentsMap.get(node2).get(k);
-            if (kParent1 != null && kParent2 != null && !kParent1.equals(kParent2)) {
-                node1 = kParent1;
-                node2 = kParent2;
+        for (int k = nbLevels - 1; k >= 0; k--) {
+            if (ancestors.get(k, node1) != ancestors.get(k, node2)) {
+                maximumNoise = max(maximumNoise, max(maxNoises.get(k, node1), maxNoises.get(k, node2)));
+                node1 = ancestors.get(k, node1);
+                node2 = ancestors.get(k, node2);
             }
         }
+        return max(maximumNoise, max(maxNoises.get(0, node1), maxNoises.get(0, node2)));
+    }
 
-        return parentsMap.get(node1).get(1);
+    /**
+     * Reconstructs the most pleasant itinerary between two nodes (the path between them in the tree).
+     * Complexity: O(log(d)) (the lowest common ancestor), then each node of the itinerary is read from the tables.
+     * @param start: the index of the beginning of the itinerary.
+     * @param end: the index of the end of the itinerary.
+     * @return the itinerary, or null if the nodes are in different components.
+     */
+    @Override
+    public Itinerary getItinerary(int start, int end) {
+        int node1 = tree.getId(start);
+        int node2 = tree.getId(end);
+        int lca = findLowestCommonAncestor(node1, node2);
+        if (lca < 0) {
+            return null;
+        }
+        int lcaDepth = depths.get(0, lca);
+        return new Itinerary(this, tree, node1, node2, depths.get(0, node1) - lcaDepth, depths.get(0, node2) - lcaDepth);
     }
 
-    private int getMaximumNoiseAtDistance(Node node1, Node node2) {
-        int biggestPowerOf2;
-        int remainingDistance = depthMap.get(node2) - depthMap.get(node1);
+    int getParent(int node) {
+        return ancestors.get(0, node);
+    }
+
+    int getNoiseToParent(int node) {
+        return maxNoises.get(0, node);
+    }
+
+    /**
+     * Complexity: O(log(distance)).
+     * @return the ancestor of a node at a given distance (no further than its root).
+     */
+    int getAncestor(int node, int distance) {
+        for (int k = 0; distance > 0; k++, distance >>>= 1) {
+            if ((distance & 1) != 0) {
+                node = ancestors.get(k, node);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Complexity: O(log(distance)).
+     * @return the maximum noise between a node and its ancestor at a given distance (0 if the distance is 0).
+     */
+    int getMaximumNoiseUp(int node, int distance) {
         int maximumNoise = 0;
-        while (remainingDistance > 0) {
-            biggestPowerOf2 = Integer.highestOneBit(remainingDistance);
-            remainingDistance = remainingDistance - biggestPowerOf2;
-            maximumNoise = max(maximumNoise, maxNoiseMap.get(node2).get(biggestPowerOf2));
-            node2 = parentsMap.get(node2).get(biggestPowerOf2);
+        for (int k = 0; distance > 0; k++, distance >>>= 1) {
+            if ((distance & 1) != 0) {
+                maximumNoise = max(maximumNoise, maxNoises.get(k, node));
+                node = ancestors.get(k, node);
+            }
         }
         return maximumNoise;
     }
 
-    private void populateAdjacentParents(Graph tree, Node currentNode, int currentDepth) {
-        int nextDepth = currentDepth + 1;
-        for (Edge edge : tree.getAdjacentEdges(currentNode)) {
-            // Get the edge's other extremity
-            Node nextNode = edge.getOtherEnd(currentNode);
+    /**
+     * Finds the closest hop above a node whose noise is the given one: the jumps that stay below it are taken from the
+     * longest to the shortest, so the hop right after them is the first one to reach it.
+     * Note: a hop with this noise must exist above the node (e.g. the maximum noise up to one of its ancestors).
+     * Complexity: O(log(d)).
+     * @return the distance from the node to the child end of the hop.
+     */
+    int findFirstHop(int node, int noise) {
+        int distance = 0;
+        for (int k = nbLevels - 1; k >= 0; k--) {
+            if (maxNoises.get(k, node) < noise) {
+                node = ancestors.get(k, node);
+                distance += 1 << k;
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Finds the lowest common ancestor of two nodes through binary lifting.
+     * @param node1: one of the nodes.
+     * @param node2: the other node.
+     * @return the lowest common ancestor, or null if the nodes are in different components.
+     */
+    public Node findLowestCommonAncestor(Node node1, Node node2) {
+        int lca = findLowestCommonAncestor(tree.getId(node1), tree.getId(node2));
+        return lca < 0 ? null : tree.getNode(lca);
+    }
 
-            // Look for already visited nodes to avoid looping through them again
-            if (!parentsMap.containsKey(nextNode)) {
-                HashMap<Integer, Node> newParents = new HashMap<>();
-                HashMap<Integer, Integer> newMaxNoiseToParents = new HashMap<>();
+    private int findLowestCommonAncestor(int node1, int node2) {
+        if (!tree.isConnected(node1, node2)) {
+            return -1;
+        }
 
-                newParents.put(1, currentNode);
-                newMaxNoiseToParents.put(1, edge.getNoise());
+        // Node 'node1' will be the one with smaller depth
+        if (depths.get(0, node1) > depths.get(0, node2)) {
+            int buffer = node1;
+            node1 = node2;
+            node2 = buffer;
+        }
 
-                parentsMap.put(nextNode, newParents);
-                maxNoiseMap.put(nextNode, newMaxNoiseToParents);
+        // Balance depth between the two nodes logarithmically
+        int remainingDistance = depths.get(0, node2) - depths.get(0, node1);
+        for (int k = 0; remainingDistance > 0; k++, remainingDistance >>>= 1) {
+            if ((remainingDistance & 1) != 0) {
+                node2 = ancestors.get(k, node2);
+            }
+        }
+        if (node1 == node2) {
+            return node1;
+        }
 
-                depthMap.put(nextNode, nextDepth);
-                populateAdjacentParents(tree, nextNode, nextDepth);
+        // Reduce the distance to the LCA logarithmically
+        for (int k = nbLevels - 1; k >= 0; k--) {
+            if (ancestors.get(k, node1) != ancestors.get(k, node2)) {
+                node1 = ancestors.get(k, node1);
+                node2 = ancestors.get(k, node2);
             }
         }
+        return ancestors.get(0, node1);
+    }
+
+    /**
+     * Populates depths, direct parents and noises to direct parents through an iterative depth first search.
+     * An explicit stack replaces the recursion so that path-shaped trees do not overflow the call stack.
+     * Note: the root of each component is its own parent (with noise 0).
+     * @return the maximum depth of the forest.
+     */
+    private int populateAdjacentParents(int[] depths, int[] parents, int[] noisesToParents) {
+        int nbNodes = tree.getNbNodes();
+        int[] stack = new int[nbNodes];
+        int maxDepth = 0;
+
+        Arrays.fill(depths, -1);
+        for (int root = 0; root < nbNodes; root++) {
+            if (depths[root] >= 0) {
+                continue;
+            }
+            // This choice is completely arbitrary, any other node of the component could be chosen as the root
+            depths[root] = 0;
+            parents[root] = root;
+            noisesToParents[root] = 0;
+
+            int size = 0;
+            stack[size++] = root;
+            while (size > 0) {
+                int currentNode = stack[--size];
+                int nextDepth = depths[currentNode] + 1;
+                for (int slot = tree.getAdjacencyStart(currentNode); slot < tree.getAdjacencyEnd(currentNode); slot++) {
+                    // Look for already visited nodes to avoid looping through them again
+                    int nextNode = tree.getNeighbor(slot);
+                    if (depths[nextNode] < 0) {
+                        depths[nextNode] = nextDepth;
+                        parents[nextNode] = currentNode;
+                        noisesToParents[nextNode] = tree.getNoise(slot);
+                        maxDepth = Math.max(maxDepth, nextDepth);
+                        stack[size++] = nextNode;
+                    }
+                }
+            }
+        }
+        return maxDepth;
+    }
+
+    /**
+     * Populates depths, direct parents and noises to direct parents through a breadth first search whose frontiers
+     * are expanded in parallel.
+     * In a tree, every neighbor of a node but its parent is a child, so each node is discovered by a single task and
+     * the next frontier is laid out through a prefix sum over the number of children (no synchronization needed).
+     * Note: the roots are the first node of each component, as in the depth first search.
+     * @return the maximum depth of the forest.
+     */
+    private int populateAdjacentParents(int[] depths, int[] parents, int[] noisesToParents, ForkJoinPool pool) {
+        int nbNodes = tree.getNbNodes();
+        int[] frontier = new int[nbNodes];
+        int[] nextFrontier = new int[nbNodes];
+        int[] offsets = new int[nbNodes + 1];
+
+        int size = 0;
+        boolean[] rooted = new boolean[tree.getNbComponents()];
+        for (int v = 0; v < nbNodes; v++) {
+            if (!rooted[tree.getComponent(v)]) {
+                rooted[tree.getComponent(v)] = true;
+                depths[v] = 0;
+                parents[v] = v;
+                noisesToParents[v] = 0;
+                frontier[size++] = v;
+            }
+        }
+
+        int maxDepth = 0;
+        while (true) {
+            int[] currentNodes = frontier;
+            int[] nextNodes = nextFrontier;
+            int nextDepth = maxDepth + 1;
+
+            // Count the children of each node of the frontier
+            RangeTask.invoke(pool, (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    int node = currentNodes[i];
+                    int degree = tree.getAdjacencyEnd(node) - tree.getAdjacencyStart(node);
+                    offsets[i + 1] = parents[node] == node ? degree : degree - 1;
+                }
+            }, 0, size);
+            for (int i = 0; i < size; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            if (offsets[size] == 0) {
+                return maxDepth;
+            }
+
+            // Expand the frontier (the children of the i-th node are written from offsets[i] on)
+            RangeTask.invoke(pool, (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    int node = currentNodes[i];
+                    int position = offsets[i];
+                    for (int slot = tree.getAdjacencyStart(node); slot < tree.getAdjacencyEnd(node); slot++) {
+                        int nextNode = tree.getNeighbor(slot);
+                        if (nextNode != parents[node]) {
+                            depths[nextNode] = nextDepth;
+                            parents[nextNode] = node;
+                            noisesToParents[nextNode] = tree.getNoise(slot);
+                            nextNodes[position++] = nextNode;
+                        }
+                    }
+                }
+            }, 0, size);
+
+            size = offsets[size];
+            frontier = nextNodes;
+            nextFrontier = currentNodes;
+            maxDepth = nextDepth;
+        }
+    }
+
+    /**
+     * @return the number of bytes held by the tables (on or off the heap).
+     */
+    public long getFootprint() {
+        return depths.getFootprint() + ancestors.getFootprint() + maxNoises.getFootprint();
+    }
+
+    @Override
+    public void close() {
+        depths.close();
+        ancestors.close();
+        maxNoises.close();
     }
 
     @Override
@@ -1,16 +1,16 @@
 package path;
 
+import graph.CompactGraph;
 import graph.Edge;
 import graph.Graph;
-import graph.Node;
 import input.Query;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.LinkedList;
 
-public class NaivePathResolver extends PathResolver {
-    private Graph tree;
+public class NaivePathResolver extends OnlinePathResolver {
+    private final CompactGraph tree;
 
     /**
      * Creates a naive path resolver.
@@ -18,74 +18,95 @@ public class NaivePathResolver extends PathResolver {
      * @param tree: the graph where the path is to be computed on.
      */
     public NaivePathResolver(Graph tree) {
+        this(tree.toCompactGraph());
+    }
+
+    /**
+     * Creates a naive path resolver on the compressed sparse row representation of the tree.
+     * @param tree: the graph where the path is to be computed on.
+     */
+    public NaivePathResolver(CompactGraph tree) {
         this.tree = tree;
     }
 
     public int getMaximumNoise(Query query) {
-        HashMap<Node, Edge> path = computePathRecursively(new HashMap<>(), query.getStart(), query.getEnd());
-        if (path == null) {
-            return 0;
-        }
+        return getMaximumNoise(query.getStart().getIndex(), query.getEnd().getIndex());
+    }
 
-        Node currentNode = query.getStart();
-        Node endNode = query.getEnd();
+    @Override
+    public int getMaximumNoise(int startIndex, int endIndex) {
+        int start = tree.getId(startIndex);
+        int end = tree.getId(endIndex);
+        if (!tree.isConnected(start, end)) {
+            return UNREACHABLE;
+        }
+        int[] parents = computePath(start, end);
 
-        Edge edge;
+        int currentNode = start;
         int maximumNoise = 0;
 
-        while (!currentNode.equals(endNode)) {
-            edge = path.get(currentNode);
-            maximumNoise = max(maximumNoise, edge.getNoise());
-            currentNode = edge.getOtherEnd(currentNode);
+        while (currentNode != end) {
+            maximumNoise = max(maximumNoise, parents[2 * currentNode + 1]);
+            currentNode = parents[2 * currentNode];
         }
         return maximumNoise;
     }
 
+    /**
+     * Lists the edges of the path between the extremities of a query in order.
+     * Note: a search through the whole tree is run for every query (see LCAPathResolver.getItinerary() for a
+     * reconstruction in O(length of the path)).
+     * @param query: the query.
+     * @return the edges from the start to the end, or null if the nodes are in different components.
+     */
     public Collection<Edge> getOrderedPath(Query query) {
-        HashMap<Node, Edge> path = computePathRecursively(new HashMap<>(), query.getStart(), query.getEnd());
-        if (path == null) {
+        int start = tree.getId(query.getStart());
+        int end = tree.getId(query.getEnd());
+        if (!tree.isConnected(start, end)) {
             return null;
         }
+        int[] parents = computePath(start, end);
 
-        Node currentNode = query.getStart();
-        Node endNode = query.getEnd();
-
-        Edge edge;
+        int currentNode = start;
         Collection<Edge> ordered = new LinkedList<>();
 
-        while (!currentNode.equals(endNode)) {
-            edge = path.get(currentNode);
-            ordered.add(edge);
-            currentNode = edge.getOtherEnd(currentNode);
+        while (currentNode != end) {
+            int nextNode = parents[2 * currentNode];
+            ordered.add(new Edge(tree.getNode(currentNode), tree.getNode(nextNode), parents[2 * currentNode + 1]));
+            currentNode = nextNode;
         }
         return ordered;
     }
 
-    private HashMap<Node, Edge> computePathRecursively(HashMap<Node, Edge> currentPath, Node currentNode, Node endNode) {
-        if (currentNode.equals(endNode)) {
-            return currentPath;
-        }
-
-        for (Edge edge : tree.getAdjacentEdges(currentNode)) {
-            // Get the edge's other extremity
-            Node nextNode = edge.getOtherEnd(currentNode);
-
-            // Look for already visited nodes to avoid looping through them again
-            if (!currentPath.containsKey(nextNode)) {
-                // Try adding edge
-                currentPath.put(currentNode, edge);
-                HashMap<Node, Edge> tentativePath = computePathRecursively(currentPath, nextNode, endNode);
-                if (tentativePath == null) {
-                    // Failed, remove edge and continue
-                    currentPath.remove(currentNode);
-                } else {
-                    return tentativePath;
+    /**
+     * Performs an iterative depth first search rooted at endNode until startNode is found.
+     * Note: the search is rooted at the end so that following parents from the start walks the path in order.
+     * @param startNode: dense id of the beginning of the path.
+     * @param endNode: dense id of the end of the path.
+     * Note: startNode must be reachable from endNode.
+     * @return the parent (even positions) and noise to the parent (odd positions) of every visited node.
+     */
+    private int[] computePath(int startNode, int endNode) {
+        int[] parents = new int[2 * tree.getNbNodes()];
+        Arrays.fill(parents, -1);
+        parents[2 * endNode] = endNode;
+
+        int[] stack = new int[tree.getNbNodes()];
+        int size = 0;
+        stack[size++] = endNode;
+        while (size > 0 && parents[2 * startNode] < 0) {
+            int currentNode = stack[--size];
+            for (int slot = tree.getAdjacencyStart(currentNode); slot < tree.getAdjacencyEnd(currentNode); slot++) {
+                // Look for already visited nodes to avoid looping through them again
+                int nextNode = tree.getNeighbor(slot);
+                if (parents[2 * nextNode] < 0) {
+                    parents[2 * nextNode] = currentNode;
+                    parents[2 * nextNode + 1] = tree.getNoise(slot);
+                    stack[size++] = nextNode;
                 }
             }
         }
-
-        // If reached this point then the path is wrong
-        return null;
+        return parents;
     }
 
     @Override
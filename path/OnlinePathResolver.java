@@ -0,0 +1,28 @@
+package path;
+
+import java.util.concurrent.ForkJoinPool;
+
+public abstract class OnlinePathResolver extends PathResolver {
+    /**
+     * Computes the maximum noise on the path between two nodes.
+     * Online resolvers do not need the queries up front, so they answer them one at a time (which the server and the
+     * answer cache require) as well as in batches.
+     * @param start: the index of the beginning of the path.
+     * @param end: the index of the end of the path.
+     * @return the maximum noise, or UNREACHABLE if the nodes are in different components.
+     */
+    public abstract int getMaximumNoise(int start, int end);
+
+    /**
+     * Computes the maximum noise of a batch of queries.
+     * The batch is split in halves recursively and the halves are answered by the workers of the pool, so the
+     * parallelism is the one the pool was created with.
+     * Note: resolvers are read-only once built, so any number of threads may query them concurrently (resolvers that
+     * cannot be shared override this method).
+     */
+    @Override
+    public void getMaximumNoises(int[] starts, int[] ends, int[] answers, ForkJoinPool pool) {
+        checkBatch(starts, ends, answers);
+        pool.invoke(new BatchQueryTask(this, starts, ends, answers, 0, starts.length));
+    }
+}
@@ -2,8 +2,45 @@ package path;
 
 import input.Query;
 
-public abstract class PathResolver {
+import java.util.concurrent.ForkJoinPool;
+
+public abstract class PathResolver implements AutoCloseable {
+    // Answer given to queries whose extremities lie in different components of a spanning forest
+    public static final int UNREACHABLE = -1;
+
     public abstract int getMaximumNoise(Query query);
+
+    /**
+     * Computes the maximum noise of a batch of queries on the common fork-join pool.
+     * @see #getMaximumNoises(int[], int[], int[], ForkJoinPool)
+     */
+    public void getMaximumNoises(int[] starts, int[] ends, int[] answers) {
+        getMaximumNoises(starts, ends, answers, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Computes the maximum noise of a batch of queries (the only way to query offline resolvers, see
+     * OnlinePathResolver for the ones that also answer queries one at a time).
+     * @param starts: the index of the beginning of each query's path.
+     * @param ends: the index of the end of each query's path.
+     * @param answers: filled with the maximum noise of each query (or UNREACHABLE).
+     * @param pool: the pool running the queries (resolvers whose queries are sequential may ignore it).
+     */
+    public abstract void getMaximumNoises(int[] starts, int[] ends, int[] answers, ForkJoinPool pool);
+
+    /**
+     * Releases the memory the resolver holds off the heap, if any (see IntTable), so it must not be queried afterwards.
+     */
+    @Override
+    public void close() {
+    }
+
+    void checkBatch(int[] starts, int[] ends, int[] answers) {
+        if (starts.length != ends.length || starts.length != answers.length) {
+            throw new IllegalArgumentException("Starts, ends and answers must have the same length.");
+        }
+    }
+
     int max(int max1, int max2) {
         return max1 > max2 ? max1 : max2;
     }
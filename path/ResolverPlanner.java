@@ -0,0 +1,212 @@
+package path;
+
+import graph.CompactGraph;
+
+import java.util.Arrays;
+
+public class ResolverPlanner {
+    public enum Engine {
+        NAIVE, LCA, TARJAN, KRUSKAL, EULER_TOUR;
+    }
+
+    // Cost model constants in nanoseconds, calibrated on a single core with random, path and binary trees of 10^4 to
+    // 10^6 nodes (see benchmarks.CalibrationBenchmark), so only their ratios are meaningful elsewhere
+    private static final double NAIVE_QUERY_PER_NODE = 60;
+    private static final double LCA_BUILD_PER_NODE_LEVEL = 25;
+    private static final double LCA_QUERY_PER_LEVEL = 80;
+    private static final double EULER_TOUR_BUILD_PER_NODE_LOG = 30;
+    private static final double EULER_TOUR_QUERY = 100;
+    private static final double KRUSKAL_BUILD_PER_NODE_LOG = 20;
+    private static final double KRUSKAL_QUERY = 100;
+    private static final double TARJAN_BUILD_PER_NODE = 250;
+    private static final double TARJAN_PASS_PER_NODE = 300;
+    private static final double TARJAN_PASS_PER_QUERY = 300;
+
+    private final CompactGraph tree;
+    private final int depth;
+
+    /**
+     * Creates a planner choosing the resolver with the lowest estimated cost for a workload on a tree (see plan()).
+     * <li> - tree: the tree (or forest) the resolvers are built on.
+     * <li> - depth: the maximum depth of the tree, rooted at the first node of each component.
+     * Complexity: O(n) (a breadth first search for the depth).
+     * @param tree: the minimum spanning tree (or forest) of the graph.
+     */
+    public ResolverPlanner(CompactGraph tree) {
+        this.tree = tree;
+        depth = computeDepth(tree);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Estimates the cost of each engine and picks the cheapest one.
+     * @param nbQueries: the expected number of queries.
+     * @param batchSize: the number of queries per batch (1 if the queries arrive online, one at a time).
+     * @return the plan, holding the estimated costs.
+     */
+    public Plan plan(long nbQueries, int batchSize) {
+        return plan(nbQueries, batchSize, false);
+    }
+
+    /**
+     * Estimates the cost of each engine and picks the cheapest one.
+     * The cost of an engine is its build time plus the time to answer the queries, from the number of nodes n, the
+     * depth d of the tree, the number of queries l and the number of queries per batch b:
+     * <li> - NAIVE: no build, O(n) per query (a search through the tree);
+     * <li> - LCA: O(n log(d)) build, O(log(d)) per query;
+     * <li> - TARJAN: O(n) build, then one O(n + b) pass per batch (offline only, so never chosen when b = 1 or when
+     *        only online engines are considered);
+     * <li> - KRUSKAL: O(n log(n)) build (sort and sparse table), O(1) per query;
+     * <li> - EULER_TOUR: O(n log(n)) build (sparse table over the tour), O(1) per query.
+     * @param nbQueries: the expected number of queries.
+     * @param batchSize: the number of queries per batch.
+     * @param online: whether only online engines are considered (so that the plan can be built by buildOnline(), e.g.
+     *        to put the resolver behind a cache), which rules TARJAN out.
+     * @return the plan, holding the estimated costs.
+     */
+    public Plan plan(long nbQueries, int batchSize, boolean online) {
+        if (nbQueries < 0 || batchSize < 1) {
+            throw new IllegalArgumentException("The number of queries must be non-negative and batches not empty.");
+        }
+        double nbNodes = tree.getNbNodes();
+        double nbLevels = log2(depth + 1.0) + 1;
+        double logNodes = log2(nbNodes + 1.0) + 1;
+        long nbBatches = (nbQueries + batchSize - 1) / batchSize;
+
+        Engine[] engines = Engine.values();
+        double[] buildCosts = new double[engines.length];
+        double[] queryCosts = new double[engines.length];
+        buildCosts[Engine.NAIVE.ordinal()] = 0;
+        queryCosts[Engine.NAIVE.ordinal()] = nbQueries * NAIVE_QUERY_PER_NODE * nbNodes;
+        buildCosts[Engine.LCA.ordinal()] = LCA_BUILD_PER_NODE_LEVEL * nbNodes * nbLevels;
+        queryCosts[Engine.LCA.ordinal()] = nbQueries * LCA_QUERY_PER_LEVEL * nbLevels;
+        buildCosts[Engine.TARJAN.ordinal()] = TARJAN_BUILD_PER_NODE * nbNodes;
+        queryCosts[Engine.TARJAN.ordinal()] = online || batchSize == 1 ? Double.POSITIVE_INFINITY
+            : nbBatches * TARJAN_PASS_PER_NODE * nbNodes + nbQueries * TARJAN_PASS_PER_QUERY;
+        buildCosts[Engine.KRUSKAL.ordinal()] = KRUSKAL_BUILD_PER_NODE_LOG * nbNodes * logNodes;
+        queryCosts[Engine.KRUSKAL.ordinal()] = nbQueries * KRUSKAL_QUERY;
+        buildCosts[Engine.EULER_TOUR.ordinal()] = EULER_TOUR_BUILD_PER_NODE_LOG * nbNodes * (logNodes + 1);
+        queryCosts[Engine.EULER_TOUR.ordinal()] = nbQueries * EULER_TOUR_QUERY;
+
+        Engine best = Engine.NAIVE;
+        for (Engine engine : engines) {
+            int i = engine.ordinal();
+            if (buildCosts[i] + queryCosts[i] < buildCosts[best.ordinal()] + queryCosts[best.ordinal()]) {
+                best = engine;
+            }
+        }
+        return new Plan(best, buildCosts, queryCosts);
+    }
+
+    /**
+     * Builds the resolver chosen by a plan on the tree.
+     * @param plan: the plan (or any engine through Plan.getEngine()).
+     * @param storage: where the tables of the resolver are stored (NAIVE and TARJAN have none to store).
+     * @return the resolver (TARJAN answers batches only).
+     */
+    public PathResolver build(Plan plan, IntTable.Storage storage) {
+        return plan.getEngine() == Engine.TARJAN ? new TarjanLCAPathResolver(tree) : buildOnline(plan, storage);
+    }
+
+    /**
+     * Builds the resolver chosen by a plan of online engines on the tree (see plan()).
+     * @param plan: the plan (or any engine but TARJAN through Plan.getEngine()).
+     * @param storage: where the tables of the resolver are stored (NAIVE has none to store).
+     * @return the resolver.
+     * @throws IllegalArgumentException: if the plan chose TARJAN, which answers batches only.
+     */
+    public OnlinePathResolver buildOnline(Plan plan, IntTable.Storage storage) {
+        switch (plan.getEngine()) {
+            case NAIVE: return new NaivePathResolver(tree);
+            case LCA: return new LCAPathResolver(tree, null, storage);
+            case KRUSKAL: return new KruskalPathResolver(tree, storage);
+            case EULER_TOUR: return new EulerTourPathResolver(tree, storage);
+            case TARJAN: throw new IllegalArgumentException("TARJAN answers batches only, it is not an online engine.");
+            default: throw new RuntimeException("Unrecognized engine.");
+        }
+    }
+
+    private static double log2(double value) {
+        return Math.log(value) / Math.log(2);
+    }
+
+    /**
+     * Performs a breadth first search from the first node of each component.
+     * @return the maximum depth of the forest.
+     */
+    private static int computeDepth(CompactGraph tree) {
+        int nbNodes = tree.getNbNodes();
+        int[] depths = new int[nbNodes];
+        int[] queue = new int[nbNodes];
+        Arrays.fill(depths, -1);
+        int maxDepth = 0;
+        for (int root = 0; root < nbNodes; root++) {
+            if (depths[root] >= 0) {
+                continue;
+            }
+            depths[root] = 0;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = root;
+            while (head < tail) {
+                int currentNode = queue[head++];
+                for (int slot = tree.getAdjacencyStart(currentNode); slot < tree.getAdjacencyEnd(currentNode); slot++) {
+                    int nextNode = tree.getNeighbor(slot);
+                    if (depths[nextNode] < 0) {
+                        depths[nextNode] = depths[currentNode] + 1;
+                        maxDepth = Math.max(maxDepth, depths[nextNode]);
+                        queue[tail++] = nextNode;
+                    }
+                }
+            }
+        }
+        return maxDepth;
+    }
+
+    public static class Plan {
+        private final Engine engine;
+        private final double[] buildCosts;
+        private final double[] queryCosts;
+
+        /**
+         * Creates the outcome of a planning.
+         * <li> - engine: the engine with the lowest estimated cost.
+         * <li> - buildCosts: the estimated build time of each engine, in nanoseconds (indexed by ordinal).
+         * <li> - queryCosts: the estimated time to answer the queries with each engine, in nanoseconds.
+         */
+        private Plan(Engine engine, double[] buildCosts, double[] queryCosts) {
+            this.engine = engine;
+            this.buildCosts = buildCosts;
+            this.queryCosts = queryCosts;
+        }
+
+        public Engine getEngine() {
+            return engine;
+        }
+
+        public double getEstimatedBuildTime(Engine engine) {
+            return buildCosts[engine.ordinal()];
+        }
+
+        public double getEstimatedQueryTime(Engine engine) {
+            return queryCosts[engine.ordinal()];
+        }
+
+        /**
+         * @return the chosen engine and the estimated costs (build + queries, in ms) of every engine.
+         */
+        @Override
+        public String toString() {
+            StringBuilder description = new StringBuilder(engine.toString()).append(" (estimated");
+            for (Engine candidate : Engine.values()) {
+                double cost = buildCosts[candidate.ordinal()] + queryCosts[candidate.ordinal()];
+                description.append(' ').append(candidate).append(' ');
+                description.append(Double.isInfinite(cost) ? "N/A" : String.format("%.1f ms", cost / 1e6));
+            }
+            return description.append(')').toString();
+        }
+    }
+}
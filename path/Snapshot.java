@@ -0,0 +1,131 @@
+package path;
+
+import graph.CompactGraph;
+import graph.SnapshotReader;
+import graph.SnapshotWriter;
+import input.MappedProblem;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Locale;
+
+public class Snapshot {
+    // Kinds of snapshot (stored in the header, so they must never be renumbered)
+    private static final int LCA = 1;
+    private static final int KRUSKAL = 2;
+    private static final int EULER_TOUR = 3;
+
+    private Snapshot() {
+    }
+
+    /**
+     * Writes a preprocessed resolver and the tree it was built on, so that a later process answers queries without
+     * parsing the problem, computing the minimum spanning forest or building the tables.
+     * The payload holds the tree (see CompactGraph.write()) followed by the tables of the resolver.
+     * @param filename: the snapshot file (replaced if it exists).
+     * @param tree: the tree (or forest) the resolver was built on.
+     * @param resolver: a LCAPathResolver, KruskalPathResolver or EulerTourPathResolver (the others have no tables).
+     * @throws IOException: if the file cannot be written.
+     */
+    public static void write(String filename, CompactGraph tree, PathResolver resolver) throws IOException {
+        int kind;
+        if (resolver instanceof LCAPathResolver) {
+            kind = LCA;
+        } else if (resolver instanceof KruskalPathResolver) {
+            kind = KRUSKAL;
+        } else if (resolver instanceof EulerTourPathResolver) {
+            kind = EULER_TOUR;
+        } else {
+            throw new IllegalArgumentException(String.format("%s cannot be written to a snapshot.", resolver));
+        }
+        try (SnapshotWriter writer = new SnapshotWriter(filename, kind)) {
+            tree.write(writer);
+            switch (kind) {
+                case LCA: ((LCAPathResolver) resolver).write(writer); break;
+                case KRUSKAL: ((KruskalPathResolver) resolver).write(writer); break;
+                default: ((EulerTourPathResolver) resolver).write(writer); break;
+            }
+        }
+    }
+
+    /**
+     * Restores a resolver from a snapshot written by write().
+     * The tree is copied onto the heap (O(n) memory) while the tables are memory-mapped: they are paged in from the
+     * file (or the page cache, shared between processes) as the queries read them, and freed by the resolver's close().
+     * Complexity: O(n) (a copy of the tree), plus O(size of the file) if the checksum is verified.
+     * @param filename: the snapshot file.
+     * @param verify: whether the checksum of the whole file is verified first (which reads every page of it).
+     * @return the resolver.
+     * @throws ParseException: if the file is not a snapshot, has another format version, is truncated or corrupted.
+     */
+    public static OnlinePathResolver read(String filename, boolean verify) throws IOException, ParseException {
+        try (SnapshotReader reader = new SnapshotReader(filename)) {
+            if (verify) {
+                reader.verify();
+            }
+            CompactGraph tree = CompactGraph.read(reader);
+            switch (reader.getKind()) {
+                case LCA: return LCAPathResolver.read(reader, tree);
+                case KRUSKAL: return KruskalPathResolver.read(reader, tree);
+                case EULER_TOUR: return EulerTourPathResolver.read(reader, tree);
+                default: throw new ParseException(String.format("Unrecognized snapshot kind %s.", reader.getKind()), 8);
+            }
+        }
+    }
+
+    /**
+     * Command line tool: java path.Snapshot [--engine=LCA|KRUSKAL|EULER_TOUR|AUTO] [--relabel=BFS|DFS|HEAVY_PATH]
+     * problem-file snapshot-file
+     * Converts a problem (an itineraries .in file) into a snapshot of its minimum spanning forest and resolver (LCA by
+     * default, AUTO lets ResolverPlanner choose for the problem's queries answered one at a time). The forest may be
+     * renumbered first (see CompactGraph.relabel()), and the snapshot keeps its order.
+     */
+    public static void main(String[] args) throws IOException, ParseException {
+        String engineName = "LCA";
+        CompactGraph.NodeOrder order = CompactGraph.NodeOrder.INDEX;
+        String problemName = null;
+        String snapshotName = null;
+        for (String arg : args) {
+            if (arg.startsWith("--engine=")) {
+                engineName = arg.substring("--engine=".length()).toUpperCase(Locale.ROOT);
+            } else if (arg.startsWith("--relabel=")) {
+                order = CompactGraph.NodeOrder.valueOf(arg.substring("--relabel=".length()).toUpperCase(Locale.ROOT));
+            } else if (arg.startsWith("--")) {
+                throw new IllegalArgumentException(String.format("Unrecognized option: %s", arg));
+            } else if (problemName == null) {
+                problemName = arg;
+            } else {
+                snapshotName = arg;
+            }
+        }
+        if (snapshotName == null) {
+            throw new IllegalArgumentException(
+                "Usage: java path.Snapshot [--engine=LCA|KRUSKAL|EULER_TOUR|AUTO] [--relabel=BFS|DFS|HEAVY_PATH] "
+                    + "problem-file snapshot-file"
+            );
+        }
+
+        long startTime = System.nanoTime();
+        MappedProblem problem = new MappedProblem(problemName);
+        CompactGraph tree = problem.getGraph().getMinimumSpanningForest().relabel(order);
+        ResolverPlanner planner = new ResolverPlanner(tree);
+        ResolverPlanner.Engine engine = engineName.equals("AUTO")
+            ? planner.plan(problem.getNbQueries(), 1).getEngine()
+            : ResolverPlanner.Engine.valueOf(engineName);
+        PathResolver built;
+        switch (engine) {
+            case LCA: built = new LCAPathResolver(tree); break;
+            case KRUSKAL: built = new KruskalPathResolver(tree); break;
+            case EULER_TOUR: built = new EulerTourPathResolver(tree); break;
+            default: throw new IllegalArgumentException(String.format("%s cannot be written to a snapshot.", engine));
+        }
+        try (PathResolver resolver = built) {
+            long buildTime = System.nanoTime();
+            write(snapshotName, tree, resolver);
+            System.err.println(String.format(
+                "[snapshot][%s] %s nodes, preprocessed in %.1f ms, written in %.1f ms", engine, tree.getNbNodes(),
+                (buildTime - startTime) / 1e6, (System.nanoTime() - buildTime) / 1e6
+            ));
+        }
+    }
+}
@@ -1,179 +1,265 @@
 package path;
 
-import graph.Edge;
+import graph.CompactGraph;
 import graph.Graph;
 import graph.Node;
 import input.Query;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public class TarjanLCAPathResolver extends PathResolver {
-    private HashMap<Node, Node> unionFindNodeMap;
-    private HashMap<Node, Integer> unionFindNoiseMap;
-
-    private HashMap<Node, Collection<Query>> queriesMap;
-    private HashMap<Query, Node> lcaQueryMap;
-    private HashMap<Query, Integer> noiseQueryMap;
+    private final CompactGraph tree;
+    private final HashMap<Query, Integer> positionQueryMap;
+    private final int[] lcas;
+    private final int[] noises;
 
     /**
      * Creates a path resolver based on Tarjan's Lowest Common Ancestor algorithm.
      * A Tarjan's LCA path resolver identifies the lowest common ancestor of the query's extremities to compute the path.
-     * The private attribute below represents a different view of the graph for caching purposes.
-     * <li> - unionFindNodeMap: used by UnionFind.
-     * <li> - unionFindNoiseMap: used by UnionFind.
-     * <li> - queriesMap: hash map of nodes to queries that contain them (used by Tarjan to reduce complexity to O(1)).
-     * <li> - lcaQueryMap: hash map of queries to their LCA (used for debugging purposes).
-     * <li> - noiseQueryMap: hash map of queries to the maximum noise of the path connecting its extremities.
+     * The private attributes below represent different views of the queries for caching purposes.
+     * <li> - tree: the tree itself (used to translate node indexes).
+     * <li> - positionQueryMap: hash map of the distinct queries given at construction to their position in lcas/noises.
+     * <li> - lcas: the dense id of the LCA of each query (used for debugging purposes).
+     * <li> - noises: the maximum noise of the path connecting the extremities of each query.
      * @param tree: the graph where the path is to be computed on.
+     * @param queries: the queries to be answered.
      */
     public TarjanLCAPathResolver(Graph tree, Collection<Query> queries) {
-        queriesMap = new HashMap<>();
-        lcaQueryMap = new HashMap<>();
-        noiseQueryMap = new HashMap<>();
+        this(tree.toCompactGraph(), queries);
+    }
 
-        // Populate queries map
+    /**
+     * Creates a path resolver based on Tarjan's Lowest Common Ancestor on the compressed sparse row representation.
+     * @param tree: the graph where the path is to be computed on.
+     * @param queries: the queries to be answered.
+     */
+    public TarjanLCAPathResolver(CompactGraph tree, Collection<Query> queries) {
+        this.tree = tree;
+        positionQueryMap = new HashMap<>(2 * queries.size());
+        int[] starts = new int[queries.size()];
+        int[] ends = new int[queries.size()];
+        int nbDistinctQueries = 0;
         for (Query query : queries) {
-            Node start = query.getStart();
-            Node end = query.getEnd();
-            queriesMap.putIfAbsent(start, new LinkedList<>());
-            queriesMap.putIfAbsent(end, new LinkedList<>());
-            queriesMap.get(start).add(query);
-            queriesMap.get(end).add(query);
+            // Duplicate queries share the position of their first occurrence (they are answered once)
+            if (positionQueryMap.putIfAbsent(query, nbDistinctQueries) == null) {
+                starts[nbDistinctQueries] = query.getStart().getIndex();
+                ends[nbDistinctQueries++] = query.getEnd().getIndex();
+            }
         }
+        starts = Arrays.copyOf(starts, nbDistinctQueries);
+        ends = Arrays.copyOf(ends, nbDistinctQueries);
+        lcas = new int[nbDistinctQueries];
+        noises = new int[nbDistinctQueries];
+        buildTarjanLCA(starts, ends, lcas, noises);
+    }
 
-        buildTarjanLCA(tree);
+    /**
+     * Creates a path resolver based on Tarjan's Lowest Common Ancestor for queries given as primitive arrays.
+     * Queries are then answered by position through getMaximumNoise(int).
+     * @param tree: the graph where the path is to be computed on.
+     * @param starts: the index of the beginning of each query's path.
+     * @param ends: the index of the end of each query's path.
+     */
+    public TarjanLCAPathResolver(CompactGraph tree, int[] starts, int[] ends) {
+        this.tree = tree;
+        positionQueryMap = null;
+        lcas = new int[starts.length];
+        noises = new int[starts.length];
+        buildTarjanLCA(starts, ends, lcas, noises);
+    }
+
+    /**
+     * Creates a path resolver based on Tarjan's Lowest Common Ancestor without queries up front.
+     * Queries are then answered in batches through getMaximumNoises (one offline pass over the tree per batch, so
+     * batches should be large with respect to the tree).
+     * @param tree: the graph where the path is to be computed on.
+     */
+    public TarjanLCAPathResolver(CompactGraph tree) {
+        this(tree, new int[0], new int[0]);
     }
 
     public int getMaximumNoise(Query query) {
-        return noiseQueryMap.get(query);
+        return noises[getPosition(query)];
     }
 
-    public Node findLowestCommonAncestor(Query query) {
-        return lcaQueryMap.get(query);
+    /**
+     * @param position: the position of the query in the arrays given at construction.
+     * @return the maximum noise of the query's path, or UNREACHABLE if its extremities are in different components.
+     */
+    public int getMaximumNoise(int position) {
+        return noises[position];
     }
 
-    private void buildTarjanLCA(Graph tree) {
-        // This choice is completely arbitrary, any other node could be chosen as the root
-        Node root = tree.getNodeIterator().next();
+    /**
+     * Computes the maximum noise of a new batch of queries through another offline pass over the tree.
+     * The depth first search is inherently sequential, so the batch is answered by the calling thread; the pass only
+     * writes to its own buffers, so several batches may still be answered concurrently.
+     * Complexity: O((n + l) log(n)).
+     * @param pool: ignored.
+     */
+    @Override
+    public void getMaximumNoises(int[] starts, int[] ends, int[] answers, ForkJoinPool pool) {
+        checkBatch(starts, ends, answers);
+        buildTarjanLCA(starts, ends, new int[starts.length], answers);
+    }
 
-        // Compute all queries' LCAs and the maximum noise for one side of the tree
-        unionFindNodeMap = new HashMap<>();
-        unionFindNoiseMap = new HashMap<>();
-        tarjanLCA(tree, root, false);
+    public Node findLowestCommonAncestor(Query query) {
+        int lca = lcas[getPosition(query)];
+        return lca < 0 ? null : tree.getNode(lca);
+    }
 
-        // Compute all queries' LCAs again but run in reversed order to get the maximum noise for the side of the tree
-        unionFindNodeMap = new HashMap<>();
-        unionFindNoiseMap = new HashMap<>();
-        tarjanLCA(tree, root, true);
+    private int getPosition(Query query) {
+        Integer position = positionQueryMap == null ? null : positionQueryMap.get(query);
+        if (position == null) {
+            throw new IllegalArgumentException(String.format("%s was not given to %s", query, this));
+        }
+        return position;
     }
 
-    private void tarjanLCA(Graph tree, Node currentNode, boolean reversed) {
-        // Initialize the disjoint set containing currentNode.
-        // This also serves as a 'marking as visited' mechanism
-        makeSet(currentNode);
+    /**
+     * Answers every query in a single iterative depth first search over the (unmodified) tree.
+     * Each query is attached to its LCA when its second extremity is finished, and answered when its LCA is finished:
+     * at that point both extremities belong to the LCA's disjoint set, so the union-find gives the maximum noise from
+     * each extremity to the LCA and no second (reversed) traversal is needed.
+     * Complexity: O((n + l) log(n)) with path compression (n = nbNodes, l = nbQueries).
+     * @param starts: the index of the beginning of each query's path.
+     * @param ends: the index of the end of each query's path.
+     * @param lcas: filled with the dense id of the LCA of each query (or -1).
+     * @param noises: filled with the maximum noise of each query (or UNREACHABLE).
+     */
+    private void buildTarjanLCA(int[] starts, int[] ends, int[] lcas, int[] noises) {
+        int nbNodes = tree.getNbNodes();
+        int nbQueries = starts.length;
 
-        // Get all adjacent edges (reversed if requested)
-        List<Edge> adjacent = tree.getAdjacentEdges(currentNode);
-        if (reversed) {
-            Collections.reverse(adjacent);
+        // Index the queries by extremity (compressed sparse row, every query appears once per extremity)
+        int[] queryStarts = new int[nbQueries];
+        int[] queryEnds = new int[nbQueries];
+        int[] queryOffsets = new int[nbNodes + 1];
+        for (int q = 0; q < nbQueries; q++) {
+            queryStarts[q] = tree.getId(starts[q]);
+            queryEnds[q] = tree.getId(ends[q]);
+            queryOffsets[queryStarts[q] + 1]++;
+            queryOffsets[queryEnds[q] + 1]++;
         }
-
-        for (Edge edge : adjacent) {
-            // Get the edge's other extremity
-            Node nextNode = edge.getOtherEnd(currentNode);
-
-            // Look for already visited nodes to avoid looping through them again
-            // This also serves as a mechanism to differentiate between parents and children:
-            // - Parents have already been visited.
-            // - Children have not yet been visited.
-            if (!unionFindNodeMap.containsKey(nextNode)) {
-                tarjanLCA(tree, nextNode, reversed);
-                union(currentNode, nextNode, edge.getNoise());
-                find(nextNode);
-            }
+        for (int v = 0; v < nbNodes; v++) {
+            queryOffsets[v + 1] += queryOffsets[v];
         }
-        for (Query query: queriesMap.getOrDefault(currentNode, new LinkedList<>())) {
-            Node otherEnd = query.getOtherEnd(currentNode);
-            // The node 'otherEnd' has already been visited if and only if it has been marked as visited by makeSet
-            if (unionFindNodeMap.containsKey(otherEnd)) {
-                // Run 'find' to update unionFind
-                Node lca = find(otherEnd);
-
-                // Update the query map for LCA
-                lcaQueryMap.put(query, lca);
-
-                // Update the query map for maximum noise
-                int storedMaxNoise = noiseQueryMap.getOrDefault(query, 0);
-                int maxNoiseToOtherEnd = unionFindNoiseMap.get(otherEnd);
-                noiseQueryMap.put(query, max(storedMaxNoise, maxNoiseToOtherEnd));
-            }
+        int[] queryIndex = new int[2 * nbQueries];
+        int[] next = Arrays.copyOf(queryOffsets, nbNodes);
+        for (int q = 0; q < nbQueries; q++) {
+            queryIndex[next[queryStarts[q]]++] = q;
+            queryIndex[next[queryEnds[q]]++] = q;
         }
-    }
 
-    /**
-     * Modified MakeSet operation of the union-find data structure.
-     * Makes a new set by initializing a new disjoint set for its argument whose root is itself
-     * @param source: the node whose disjoint set is to be initialized.
-     */
-    private void makeSet(Node source) {
-        // If source is not in the HashMap, then add it as a root
-        unionFindNodeMap.putIfAbsent(source, source);
-        unionFindNoiseMap.putIfAbsent(source, 0);
-    }
+        // Queries waiting for their LCA to be finished (one linked list per LCA)
+        int[] lcaQueryHeads = new int[nbNodes];
+        int[] lcaQueryNext = new int[nbQueries];
+        Arrays.fill(lcaQueryHeads, -1);
 
-    /**
-     * Modified Find operation of the union-find data structure.
-     * Computes the union between two adjacent edges.
-     * Note: updates the following disjoint sets for optimization purposes:
-     * <li> - unionFindNodeMap: by replacing the root with the new one.
-     * <li> - unionFindNoiseMap: by replacing the maximum noise with the max between the current max and the new one.
-     * @param currentNode: the node whose root is to be computed.
-     * @return the root of currentNode's disjoint set.
-     */
-    private Node find(Node currentNode) {
-        makeSet(currentNode);
+        Arrays.fill(lcas, -1);
+        Arrays.fill(noises, UNREACHABLE);
+
+        // Union-find: the root of a disjoint set is the furthest ancestor of its nodes that is still on the stack
+        // A negative parent marks non-visited nodes
+        int[] parents = new int[nbNodes];
+        int[] noisesToParents = new int[nbNodes];
+        Arrays.fill(parents, -1);
+        int[] path = new int[nbNodes];
+
+        // Depth first search with an explicit stack (next holds the next adjacency slot of each node on the stack)
+        int[] stack = new int[nbNodes];
+        for (int root = 0; root < nbNodes; root++) {
+            if (parents[root] >= 0) {
+                continue;
+            }
+            // This choice is completely arbitrary, any other node of the component could be chosen as the root
+            parents[root] = root;
+            next[root] = tree.getAdjacencyStart(root);
+            int size = 0;
+            stack[size++] = root;
+
+            while (size > 0) {
+                int currentNode = stack[size - 1];
+                if (next[currentNode] < tree.getAdjacencyEnd(currentNode)) {
+                    // Look for already visited nodes to avoid looping through them again
+                    int slot = next[currentNode]++;
+                    int nextNode = tree.getNeighbor(slot);
+                    if (parents[nextNode] < 0) {
+                        // Until it is finished, the node is the root of its own set and keeps the noise to its parent
+                        parents[nextNode] = nextNode;
+                        noisesToParents[nextNode] = tree.getNoise(slot);
+                        next[nextNode] = tree.getAdjacencyStart(nextNode);
+                        stack[size++] = nextNode;
+                    }
+                    continue;
+                }
+
+                // All children are finished: attach the queries whose other extremity has already been visited
+                for (int i = queryOffsets[currentNode]; i < queryOffsets[currentNode + 1]; i++) {
+                    int q = queryIndex[i];
+                    int otherEnd = queryStarts[q] == currentNode ? queryEnds[q] : queryStarts[q];
+                    if (lcas[q] < 0 && parents[otherEnd] >= 0 && tree.isConnected(currentNode, otherEnd)) {
+                        int lca = find(parents, noisesToParents, path, otherEnd);
+                        lcas[q] = lca;
+                        lcaQueryNext[q] = lcaQueryHeads[lca];
+                        lcaQueryHeads[lca] = q;
+                    }
+                }
 
-        // Getting from the HashMap is now safe (it cannot be null)
-        Node currentRoot = unionFindNodeMap.get(currentNode);
-        Integer currentNoiseToRoot = unionFindNoiseMap.get(currentNode);
+                // Answer the queries whose LCA is currentNode (both extremities are in its set by now)
+                for (int q = lcaQueryHeads[currentNode]; q >= 0; q = lcaQueryNext[q]) {
+                    noises[q] = max(
+                        getNoiseToRoot(parents, noisesToParents, path, queryStarts[q], currentNode),
+                        getNoiseToRoot(parents, noisesToParents, path, queryEnds[q], currentNode)
+                    );
+                }
 
-        // If source matches its parent, then it's the root of its set
-        // Otherwise, repeat the same step from its parent
-        if (currentNode.equals(currentRoot)) {
-            return currentNode;
+                // Merge the finished node into its parent's set
+                size--;
+                if (size > 0) {
+                    parents[currentNode] = stack[size - 1];
+                }
+            }
         }
+    }
 
-        // Update parent to optimize further look-ups
-        Node newRoot = find(currentRoot);
-        Integer newNoiseToRoot = unionFindNoiseMap.get(currentRoot);
-        unionFindNodeMap.put(currentNode, newRoot);
-        unionFindNoiseMap.put(currentNode, max(currentNoiseToRoot, newNoiseToRoot));
-        return newRoot;
+    private int getNoiseToRoot(int[] parents, int[] noisesToParents, int[] path, int node, int root) {
+        if (node == root) {
+            return 0;
+        }
+        find(parents, noisesToParents, path, node);
+        return noisesToParents[node];
     }
 
     /**
-     * Modified Union operation of the union-find data structure.
-     * Merges the disjoint sets of adjacent nodes.
-     * When inspected by Tarjan's algorithm, the roots of these disjoint sets represent:
-     * <li> - unionFindNodeMap: the furthest ancestor of all its nodes.
-     * <li> - unionFindNoiseMap: the maximum noise to the furthest ancestor of all its nodes.
-     * Note: parent must be the node with smaller depth so that the root of the union is the node with smallest depth.
-     * @param parent: node with smaller depth
-     * @param child: node with higher depth
-     * @param noise: noise between parent and child
+     * Modified Find operation of the union-find data structure (iterative, with path compression).
+     * Note: after the call, every node on the path links directly to the root and noisesToParents holds the maximum
+     * noise to the root (the root's own entry is left untouched).
+     * @param parents: the parent of each node in the union-find.
+     * @param noisesToParents: the maximum noise between each node and its parent in the union-find.
+     * @param path: buffer used to store the path to the root.
+     * @param node: the node whose root is to be computed.
+     * @return the root of node's disjoint set.
      */
-    private void union(Node parent, Node child, int noise) {
-        // If the roots match, nothing needs to be done
-        // Otherwise, update child's root to include parent
-        if (parent.equals(child)) {
-            return;
+    private int find(int[] parents, int[] noisesToParents, int[] path, int node) {
+        int size = 0;
+        int root = node;
+        while (parents[root] != root) {
+            path[size++] = root;
+            root = parents[root];
+        }
+
+        // Compress from the top so that each parent already holds its maximum noise to the root
+        for (int i = size - 2; i >= 0; i--) {
+            int current = path[i];
+            int parent = parents[current];
+            noisesToParents[current] = max(noisesToParents[current], noisesToParents[parent]);
+            parents[current] = root;
         }
-        unionFindNodeMap.put(child, parent);
-        unionFindNoiseMap.put(child, noise);
+        return root;
     }
 
     @Override
@@ -0,0 +1,219 @@
+package path;
+
+import graph.CompactGraph;
+
+import java.util.Arrays;
+
+public class ThresholdReachability {
+    private final KruskalPathResolver resolver;
+    private final CompactGraph graph;
+    private final int nbLevels;
+    private final int[] order;
+    private final int[] componentStarts;
+    private final int[] componentEnds;
+
+    /**
+     * Creates a resolver of threshold reachability queries: which nodes can be reached from a source without ever
+     * going through an edge noisier than a threshold (that is, whose maximum noise from the source is at most the
+     * threshold), and how many of them there are.
+     * The leaves of the Kruskal reconstruction tree below a node with weight w are exactly the nodes reachable from
+     * each other under any threshold t >= w, and they are contiguous along its Euler tour. So the nodes reachable
+     * from s are the widest range of leaves around s whose consecutive LCA weights are at most t, found by extending
+     * the range to both sides through the sparse table of KruskalPathResolver (by jumps of decreasing powers of 2).
+     * <li> - resolver: the Kruskal resolver whose leaf positions and sparse table are searched.
+     * <li> - graph: the graph (used to translate node indexes).
+     * <li> - nbLevels: number of levels of the sparse table.
+     * <li> - order: the dense id of the leaf at each position of the Euler tour (inverse of the positions).
+     * <li> - componentStarts: the first position of each connected component (the leaves of a component are
+     *        contiguous, and the weights between components are never read).
+     * <li> - componentEnds: the last position of each connected component.
+     * Complexity: O(n) on top of the resolver.
+     * @param resolver: the Kruskal resolver of the graph (or of its minimum spanning forest).
+     */
+    public ThresholdReachability(KruskalPathResolver resolver) {
+        this.resolver = resolver;
+        graph = resolver.getGraph();
+        nbLevels = resolver.getNbLevels();
+        int nbNodes = graph.getNbNodes();
+        order = new int[nbNodes];
+        componentStarts = new int[graph.getNbComponents()];
+        componentEnds = new int[graph.getNbComponents()];
+        Arrays.fill(componentStarts, nbNodes);
+        for (int v = 0; v < nbNodes; v++) {
+            int position = resolver.getPosition(v);
+            int component = graph.getComponent(v);
+            order[position] = v;
+            componentStarts[component] = Math.min(componentStarts[component], position);
+            componentEnds[component] = Math.max(componentEnds[component], position);
+        }
+    }
+
+    /**
+     * Creates a resolver of threshold reachability queries over a new Kruskal resolver of the graph.
+     * @param graph: the graph (not necessarily a tree).
+     */
+    public ThresholdReachability(CompactGraph graph) {
+        this(new KruskalPathResolver(graph));
+    }
+
+    /**
+     * Counts the nodes reachable from a source under a threshold (the source itself included).
+     * Complexity: O(log(n)).
+     * @param source: the index of the source.
+     * @param threshold: the maximum noise allowed on the way.
+     * @return the number of reachable nodes (at least 1).
+     */
+    public int countReachable(int source, int threshold) {
+        int position = resolver.getPosition(graph.getId(source));
+        int component = graph.getComponent(order[position]);
+        return extendRight(position, componentEnds[component], threshold)
+            - extendLeft(position, componentStarts[component], threshold) + 1;
+    }
+
+    /**
+     * Lists the nodes reachable from a source under a threshold (the source itself included).
+     * Complexity: O(log(n) + k) where k = the number of reachable nodes.
+     * @param source: the index of the source.
+     * @param threshold: the maximum noise allowed on the way.
+     * @return the indexes of the reachable nodes, in the order of the Euler tour.
+     */
+    public int[] getReachable(int source, int threshold) {
+        int position = resolver.getPosition(graph.getId(source));
+        int component = graph.getComponent(order[position]);
+        int first = extendLeft(position, componentStarts[component], threshold);
+        int last = extendRight(position, componentEnds[component], threshold);
+        int[] nodes = new int[last - first + 1];
+        for (int i = first; i <= last; i++) {
+            nodes[i - first] = graph.getLabel(order[i]);
+        }
+        return nodes;
+    }
+
+    /**
+     * Counts the nodes reachable from a source under each threshold of a batch.
+     * The thresholds are visited in increasing order, so each range is extended from the previous one.
+     * Complexity: O(b log(b)) for the sort, plus O(log(n)) per threshold (b = the number of thresholds).
+     * @param source: the index of the source.
+     * @param thresholds: the maximum noise allowed on the way, for each query.
+     * @param counts: filled with the number of reachable nodes under each threshold.
+     */
+    public void countReachable(int source, int[] thresholds, int[] counts) {
+        if (thresholds.length != counts.length) {
+            throw new IllegalArgumentException("Thresholds and counts must have the same length.");
+        }
+        int[] first = new int[thresholds.length];
+        int[] last = new int[thresholds.length];
+        extendAll(source, thresholds, sortByThreshold(thresholds), first, last);
+        for (int i = 0; i < thresholds.length; i++) {
+            counts[i] = last[i] - first[i] + 1;
+        }
+    }
+
+    /**
+     * Lists the nodes reachable from a source under each threshold of a batch at once: the reachable sets are nested,
+     * so the nodes are listed once, by increasing threshold, and the set of each threshold is a prefix of the list.
+     * Complexity: O(b log(b) + b log(n) + k) where k = the number of nodes reachable under the largest threshold.
+     * @param source: the index of the source.
+     * @param thresholds: the maximum noise allowed on the way, for each query.
+     * @param counts: filled with the number of reachable nodes under each threshold (the length of its prefix).
+     * @return the indexes of the nodes reachable under the largest threshold, the source first.
+     */
+    public int[] getReachable(int source, int[] thresholds, int[] counts) {
+        if (thresholds.length != counts.length) {
+            throw new IllegalArgumentException("Thresholds and counts must have the same length.");
+        }
+        int[] first = new int[thresholds.length];
+        int[] last = new int[thresholds.length];
+        int[] sortedQueries = sortByThreshold(thresholds);
+        extendAll(source, thresholds, sortedQueries, first, last);
+
+        // Every threshold adds the leaves between its range and the previous one (on both sides)
+        int position = resolver.getPosition(graph.getId(source));
+        int previousFirst = position;
+        int previousLast = position;
+        int widest = sortedQueries.length == 0 ? -1 : sortedQueries[sortedQueries.length - 1];
+        int[] nodes = new int[widest < 0 ? 1 : last[widest] - first[widest] + 1];
+        int size = 0;
+        nodes[size++] = source;
+        for (int query : sortedQueries) {
+            for (int i = previousFirst - 1; i >= first[query]; i--) {
+                nodes[size++] = graph.getLabel(order[i]);
+            }
+            for (int i = previousLast + 1; i <= last[query]; i++) {
+                nodes[size++] = graph.getLabel(order[i]);
+            }
+            previousFirst = first[query];
+            previousLast = last[query];
+            counts[query] = size;
+        }
+        return nodes;
+    }
+
+    /**
+     * Finds the range of leaves reachable under each threshold, in increasing order of threshold.
+     */
+    private void extendAll(int source, int[] thresholds, int[] sortedQueries, int[] first, int[] last) {
+        int position = resolver.getPosition(graph.getId(source));
+        int component = graph.getComponent(order[position]);
+        int left = position;
+        int right = position;
+        for (int query : sortedQueries) {
+            left = extendLeft(left, componentStarts[component], thresholds[query]);
+            right = extendRight(right, componentEnds[component], thresholds[query]);
+            first[query] = left;
+            last[query] = right;
+        }
+    }
+
+    /**
+     * Extends a range of leaves to the left while the LCA weights between consecutive leaves are at most the threshold.
+     * The jumps go from the longest to the shortest: a jump of 2^k leaves is taken if the weights it crosses are all at
+     * most the threshold (one lookup in the sparse table), and the reachable leaves are contiguous, so the range
+     * ends up as wide as it can be.
+     * Complexity: O(log(n)).
+     * @param first: the first position of the range (every leaf between it and the source must be reachable).
+     * @param start: the first position of the component.
+     * @return the first position of the widest range.
+     */
+    private int extendLeft(int first, int start, int threshold) {
+        for (int k = nbLevels - 1; k >= 0; k--) {
+            if (first - (1 << k) >= start && resolver.getGapMaximum(k, first - (1 << k)) <= threshold) {
+                first -= 1 << k;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Extends a range of leaves to the right (see extendLeft()).
+     * @param last: the last position of the range.
+     * @param end: the last position of the component.
+     * @return the last position of the widest range.
+     */
+    private int extendRight(int last, int end, int threshold) {
+        for (int k = nbLevels - 1; k >= 0; k--) {
+            if (last + (1 << k) <= end && resolver.getGapMaximum(k, last) <= threshold) {
+                last += 1 << k;
+            }
+        }
+        return last;
+    }
+
+    private static int[] sortByThreshold(int[] thresholds) {
+        long[] packed = new long[thresholds.length];
+        for (int i = 0; i < thresholds.length; i++) {
+            packed[i] = (long) thresholds[i] << 32 | i;
+        }
+        Arrays.sort(packed);
+        int[] sortedQueries = new int[thresholds.length];
+        for (int i = 0; i < thresholds.length; i++) {
+            sortedQueries[i] = (int) packed[i];
+        }
+        return sortedQueries;
+    }
+
+    @Override
+    public String toString() {
+        return "ThresholdReachability";
+    }
+}
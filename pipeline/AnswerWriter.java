@@ -0,0 +1,98 @@
+package pipeline;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class AnswerWriter implements Closeable {
+    // Size of the output buffer (an answer takes at most 12 bytes)
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private WritableByteChannel channel;
+    private ByteBuffer buffer;
+
+    /**
+     * Creates a writer of answers (one ASCII integer per line) into a file, truncating it.
+     * @param filename: the output file.
+     * @throws IOException: if the file cannot be opened.
+     */
+    public AnswerWriter(String filename) throws IOException {
+        this(FileChannel.open(
+            Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING
+        ));
+    }
+
+    /**
+     * Creates a writer of answers (one ASCII integer per line) into a channel.
+     * The digits are encoded straight into a reusable direct buffer, so no String is created per answer and the
+     * channel does not need to copy the bytes out of the heap.
+     * <li> - channel: the output channel (closed by close).
+     * <li> - buffer: the pending bytes, written to the channel when the buffer is full.
+     * @param channel: the output channel.
+     */
+    public AnswerWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    /**
+     * Writes the answers at positions 0 .. nbAnswers-1 of an array.
+     */
+    public void write(int[] answers, int nbAnswers) throws IOException {
+        for (int i = 0; i < nbAnswers; i++) {
+            write(answers[i]);
+        }
+    }
+
+    public void write(int answer) throws IOException {
+        if (buffer.remaining() < 12) {
+            drain();
+        }
+        long value = answer;
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+
+        // The digits are written from the last one, at their final position
+        int nbDigits = 1;
+        for (long power = 10; power <= value; power *= 10) {
+            nbDigits++;
+        }
+        int position = buffer.position();
+        for (int i = position + nbDigits - 1; i >= position; i--) {
+            buffer.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(position + nbDigits);
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Writes the pending bytes to the channel.
+     */
+    public void flush() throws IOException {
+        drain();
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package pipeline;
+
+import input.StreamingProblem;
+import path.PathResolver;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class Pipeline {
+    // Marks the end of the queries in the queues
+    private static final QueryBatch END = new QueryBatch(0);
+
+    private interface Stage {
+        void run() throws Exception;
+    }
+
+    private final StreamingProblem problem;
+    private final PathResolver resolver;
+    private final AnswerWriter writer;
+    private final ForkJoinPool pool;
+    private final BlockingQueue<QueryBatch> freeBatches;
+    private final BlockingQueue<QueryBatch> parsedBatches;
+    private final BlockingQueue<QueryBatch> resolvedBatches;
+    private final AtomicReference<Throwable> failure;
+    private Thread[] threads;
+    private long parseTime;
+    private long resolveTime;
+    private long writeTime;
+
+    /**
+     * Creates a pipeline answering the queries of a stream: a parser thread reads chunks of queries into batches, a
+     * resolver thread answers each batch on a fork-join pool and a writer thread encodes the answers, so that the
+     * three stages overlap and the wall-clock time gets close to the one of the slowest stage.
+     * The stages are connected by bounded queues and the batches are recycled once written, so the memory used for
+     * the queries is bounded by nbBatches * batchSize whatever the number of queries. Batches are resolved and
+     * written in order, so the answers keep the order of the queries.
+     * <li> - freeBatches: the batches that can be filled by the parser.
+     * <li> - parsedBatches: the batches waiting to be resolved.
+     * <li> - resolvedBatches: the batches waiting to be written.
+     * <li> - failure: the first exception (or error) thrown by a stage (the other stages are then interrupted).
+     * <li> - parseTime/resolveTime/writeTime: the time spent by each stage on its own work (waits excluded).
+     * @param problem: the problem, whose queries have not been read yet.
+     * @param resolver: the resolver answering the queries (built beforehand).
+     * @param writer: where the answers are written (flushed, but not closed, at the end).
+     * @param batchSize: the number of queries per batch.
+     * @param nbBatches: the number of batches in flight.
+     * @param pool: the pool resolving each batch.
+     */
+    public Pipeline(StreamingProblem problem, PathResolver resolver, AnswerWriter writer, int batchSize, int nbBatches,
+                    ForkJoinPool pool) {
+        if (batchSize <= 0 || nbBatches <= 0) {
+            throw new IllegalArgumentException("The batch size and the number of batches must be positive.");
+        }
+        this.problem = problem;
+        this.resolver = resolver;
+        this.writer = writer;
+        this.pool = pool;
+        freeBatches = new ArrayBlockingQueue<>(nbBatches);
+        parsedBatches = new ArrayBlockingQueue<>(nbBatches + 1);
+        resolvedBatches = new ArrayBlockingQueue<>(nbBatches + 1);
+        for (int i = 0; i < nbBatches; i++) {
+            freeBatches.add(new QueryBatch(batchSize));
+        }
+        failure = new AtomicReference<>();
+    }
+
+    /**
+     * Runs the three stages until every query has been answered and written.
+     * @throws IOException: if the queries cannot be read or the answers cannot be written
+     * @throws ParseException: if the queries do not respect the parsing strategy
+     */
+    public void run() throws IOException, ParseException {
+        threads = new Thread[] {
+            new Thread(() -> runStage(this::parse), "pipeline-parser"),
+            new Thread(() -> runStage(this::resolve), "pipeline-resolver"),
+            new Thread(() -> runStage(this::write), "pipeline-writer"),
+        };
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            abort();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("The pipeline was interrupted.");
+        }
+
+        Throwable exception = failure.get();
+        if (exception instanceof IOException) {
+            throw (IOException) exception;
+        } else if (exception instanceof ParseException) {
+            throw (ParseException) exception;
+        } else if (exception instanceof RuntimeException) {
+            throw (RuntimeException) exception;
+        } else if (exception instanceof Error) {
+            throw (Error) exception;
+        } else if (exception != null) {
+            throw new RuntimeException(exception);
+        }
+    }
+
+    public long getParseTime() {
+        return parseTime;
+    }
+
+    public long getResolveTime() {
+        return resolveTime;
+    }
+
+    public long getWriteTime() {
+        return writeTime;
+    }
+
+    private void parse() throws Exception {
+        while (true) {
+            QueryBatch batch = freeBatches.take();
+            long startTime = System.nanoTime();
+            int nbQueries = problem.readQueries(batch.starts, batch.ends);
+            if (nbQueries > 0 && nbQueries < batch.starts.length) {
+                // The last batch may be shorter (it is not recycled)
+                QueryBatch lastBatch = new QueryBatch(nbQueries);
+                System.arraycopy(batch.starts, 0, lastBatch.starts, 0, nbQueries);
+                System.arraycopy(batch.ends, 0, lastBatch.ends, 0, nbQueries);
+                batch = lastBatch;
+            }
+            parseTime += System.nanoTime() - startTime;
+            if (nbQueries == 0) {
+                parsedBatches.put(END);
+                return;
+            }
+            parsedBatches.put(batch);
+        }
+    }
+
+    private void resolve() throws Exception {
+        QueryBatch batch;
+        while ((batch = parsedBatches.take()) != END) {
+            long startTime = System.nanoTime();
+            resolver.getMaximumNoises(batch.starts, batch.ends, batch.answers, pool);
+            resolveTime += System.nanoTime() - startTime;
+            resolvedBatches.put(batch);
+        }
+        resolvedBatches.put(END);
+    }
+
+    private void write() throws Exception {
+        QueryBatch batch;
+        while ((batch = resolvedBatches.take()) != END) {
+            long startTime = System.nanoTime();
+            writer.write(batch.answers, batch.answers.length);
+            writeTime += System.nanoTime() - startTime;
+            freeBatches.offer(batch);
+        }
+        long startTime = System.nanoTime();
+        writer.flush();
+        writeTime += System.nanoTime() - startTime;
+    }
+
+    private void runStage(Stage stage) {
+        try {
+            stage.run();
+        } catch (InterruptedException e) {
+            // Another stage failed
+        } catch (Throwable e) {
+            if (failure.compareAndSet(null, e)) {
+                abort();
+            }
+        }
+    }
+
+    private void abort() {
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+    }
+}
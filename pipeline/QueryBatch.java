@@ -0,0 +1,17 @@
+package pipeline;
+
+class QueryBatch {
+    final int[] starts;
+    final int[] ends;
+    final int[] answers;
+
+    /**
+     * Creates a batch of queries and of their answers (recycled from one chunk of queries to the next).
+     * @param size: the number of queries of the batch.
+     */
+    QueryBatch(int size) {
+        starts = new int[size];
+        ends = new int[size];
+        answers = new int[size];
+    }
+}
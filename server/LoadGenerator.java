@@ -0,0 +1,190 @@
+package server;
+
+import input.MappedProblem;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Arrays;
+
+public class LoadGenerator {
+    private final String host;
+    private final int port;
+    private final int[] starts;
+    private final int[] ends;
+
+    /**
+     * Creates a client replaying queries against a QueryServer to measure its latency and throughput.
+     * Each connection keeps up to depth requests in flight (pipelining) and each request carries batchSize pairs; the
+     * latency of a request is the time between its sending and the reading of its response.
+     * @param host: the host of the server.
+     * @param port: the port of the server.
+     * @param starts: the node index of the start of each query to be replayed (in a loop).
+     * @param ends: the node index of the end of each query to be replayed (in a loop).
+     */
+    public LoadGenerator(String host, int port, int[] starts, int[] ends) {
+        if (starts.length == 0 || starts.length != ends.length) {
+            throw new IllegalArgumentException("There must be as many starts as ends (and at least one query).");
+        }
+        this.host = host;
+        this.port = port;
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    /**
+     * Runs the load and prints the throughput and the latency percentiles.
+     * @param nbConnections: the number of concurrent connections (one thread each).
+     * @param nbRequests: the number of requests per connection.
+     * @param batchSize: the number of pairs per request.
+     * @param depth: the maximum number of requests in flight per connection.
+     */
+    public void run(int nbConnections, int nbRequests, int batchSize, int depth) throws IOException, InterruptedException {
+        long[][] latencies = new long[nbConnections][];
+        long[] nbErrors = new long[nbConnections];
+        IOException[] failures = new IOException[nbConnections];
+        Thread[] threads = new Thread[nbConnections];
+        long startTime = System.nanoTime();
+        for (int c = 0; c < nbConnections; c++) {
+            int connection = c;
+            threads[c] = new Thread(() -> {
+                try {
+                    latencies[connection] = new long[nbRequests];
+                    nbErrors[connection] = load(connection, nbConnections, nbRequests, batchSize, depth, latencies[connection]);
+                } catch (IOException e) {
+                    failures[connection] = e;
+                }
+            }, "load-" + c);
+            threads[c].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsedTime = System.nanoTime() - startTime;
+        for (IOException failure : failures) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        long[] allLatencies = new long[nbConnections * nbRequests];
+        long errors = 0;
+        for (int c = 0; c < nbConnections; c++) {
+            System.arraycopy(latencies[c], 0, allLatencies, c * nbRequests, nbRequests);
+            errors += nbErrors[c];
+        }
+        Arrays.sort(allLatencies);
+        double seconds = elapsedTime / 1e9;
+        System.out.println(String.format(
+            "%s connections, %s requests of %s pairs (depth %s): %.0f requests/s, %.0f pairs/s, %s errors",
+            nbConnections, allLatencies.length, batchSize, depth, allLatencies.length / seconds,
+            (double) allLatencies.length * batchSize / seconds, errors
+        ));
+        System.out.println(String.format(
+            "latency: p50 %s us, p99 %s us, p99.9 %s us, max %s us",
+            getPercentile(allLatencies, 0.50) / 1000, getPercentile(allLatencies, 0.99) / 1000,
+            getPercentile(allLatencies, 0.999) / 1000, allLatencies[allLatencies.length - 1] / 1000
+        ));
+    }
+
+    /**
+     * Sends the requests of a connection while reading the responses.
+     * @return the number of error responses.
+     */
+    private long load(int connection, int nbConnections, int nbRequests, int batchSize, int depth, long[] latencies) throws IOException {
+        long nbErrors = 0;
+        long[] sendTimes = new long[depth];
+        // Each connection starts at its own offset, so that connections do not replay the same queries
+        int query = (int) ((long) connection * starts.length / nbConnections);
+        try (Socket socket = new Socket(host, port);
+             OutputStream output = new BufferedOutputStream(socket.getOutputStream(), 1 << 16);
+             InputStream input = new BufferedInputStream(socket.getInputStream(), 1 << 16)) {
+            socket.setTcpNoDelay(true);
+            int nbSent = 0;
+            int nbReceived = 0;
+            while (nbReceived < nbRequests) {
+                // Fill the pipeline, then wait for the oldest response
+                while (nbSent < nbRequests && nbSent - nbReceived < depth) {
+                    StringBuilder request = new StringBuilder(24 * batchSize);
+                    for (int i = 0; i < batchSize; i++) {
+                        if (i > 0) {
+                            request.append(' ');
+                        }
+                        request.append(starts[query]).append(' ').append(ends[query]);
+                        query = query + 1 == starts.length ? 0 : query + 1;
+                    }
+                    request.append('\n');
+                    output.write(request.toString().getBytes(StandardCharsets.US_ASCII));
+                    sendTimes[nbSent++ % depth] = System.nanoTime();
+                }
+                output.flush();
+
+                int current = input.read();
+                if (current == 'E') {
+                    nbErrors++;
+                }
+                while (current >= 0 && current != '\n') {
+                    current = input.read();
+                }
+                if (current < 0) {
+                    throw new IOException("The server closed the connection.");
+                }
+                latencies[nbReceived] = System.nanoTime() - sendTimes[nbReceived % depth];
+                nbReceived++;
+            }
+        }
+        return nbErrors;
+    }
+
+    private static long getPercentile(long[] sortedValues, double percentile) {
+        return sortedValues[(int) Math.min(sortedValues.length - 1, Math.floor(percentile * sortedValues.length))];
+    }
+
+    /**
+     * Command line tool: java server.LoadGenerator [--host=localhost] [--port=7070] [--connections=4]
+     * [--requests=100000] [--batch=1] [--depth=1] file (the queries of the problem file are replayed).
+     */
+    public static void main(String[] args) throws IOException, ParseException, InterruptedException {
+        String host = "localhost";
+        int port = 7070;
+        int nbConnections = 4;
+        int nbRequests = 100000;
+        int batchSize = 1;
+        int depth = 1;
+        String fileName = null;
+        for (String arg : args) {
+            if (arg.startsWith("--host=")) {
+                host = arg.substring("--host=".length());
+            } else if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--connections=")) {
+                nbConnections = Integer.parseInt(arg.substring("--connections=".length()));
+            } else if (arg.startsWith("--requests=")) {
+                nbRequests = Integer.parseInt(arg.substring("--requests=".length()));
+            } else if (arg.startsWith("--batch=")) {
+                batchSize = Integer.parseInt(arg.substring("--batch=".length()));
+            } else if (arg.startsWith("--depth=")) {
+                depth = Integer.parseInt(arg.substring("--depth=".length()));
+            } else {
+                fileName = arg;
+            }
+        }
+        if (fileName == null) {
+            throw new IllegalArgumentException("Usage: java server.LoadGenerator [--option=value ...] file");
+        }
+
+        MappedProblem problem = new MappedProblem(fileName);
+        int[] starts = new int[problem.getNbQueries()];
+        int[] ends = new int[problem.getNbQueries()];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = problem.getQueryStart(i);
+            ends[i] = problem.getQueryEnd(i);
+        }
+        new LoadGenerator(host, port, starts, ends).run(nbConnections, nbRequests, batchSize, depth);
+    }
+}
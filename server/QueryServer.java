@@ -0,0 +1,157 @@
+package server;
+
+import path.OnlinePathResolver;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class QueryServer implements Closeable {
+    // Size of the buffers of each connection
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final OnlinePathResolver resolver;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final Thread acceptor;
+
+    /**
+     * Creates a server answering queries over TCP on localhost, with a resolver built once for all connections.
+     * The protocol is line based (ASCII, whitespace separated integers):
+     * <li> - a request is a line with one or more pairs of node indexes: "start end [start end ...]" (at most
+     *        RequestReader.MAX_PAIRS pairs, so that a connection cannot grow the heap without limit);
+     * <li> - its response is a line with the maximum noise of each pair, in order (or "ERROR message");
+     * <li> - requests can be pipelined: a client may send any number of requests before reading the responses, which
+     *        come back in order (responses are flushed once no more request is buffered, so pipelined requests share
+     *        their writes).
+     * Each connection is served by its own thread (Java 17 has no virtual threads, a cached pool of platform threads
+     * is used instead; on Java 21, Executors.newVirtualThreadPerTaskExecutor() is a drop-in replacement).
+     * Note: the resolver is shared by all connections, so it must be safe for concurrent queries (see
+     * OnlinePathResolver); requests with several pairs are answered through the batch API.
+     * @param resolver: the resolver answering the queries (online, as requests arrive one at a time).
+     * @param port: the port to listen to (0 for any free port).
+     * @throws IOException: if the port cannot be bound.
+     */
+    public QueryServer(OnlinePathResolver resolver, int port) throws IOException {
+        this.resolver = resolver;
+        serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+        connections = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "query-connection");
+            thread.setDaemon(true);
+            return thread;
+        });
+        acceptor = new Thread(this::accept, "query-acceptor");
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public void start() {
+        acceptor.start();
+    }
+
+    /**
+     * Waits until the server is closed.
+     */
+    public void join() throws InterruptedException {
+        acceptor.join();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    private void accept() {
+        try {
+            while (true) {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> serve(socket));
+            }
+        } catch (IOException e) {
+            // The server socket was closed
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket connection = socket;
+             InputStream input = new BufferedInputStream(connection.getInputStream(), BUFFER_SIZE);
+             OutputStream output = new BufferedOutputStream(connection.getOutputStream(), BUFFER_SIZE)) {
+            connection.setTcpNoDelay(true);
+            RequestReader reader = new RequestReader(input);
+            byte[] digits = new byte[12];
+            int[] answers = new int[1];
+            int nbPairs;
+            while ((nbPairs = reader.readRequest()) >= 0) {
+                try {
+                    if (nbPairs == 0) {
+                        throw new IllegalArgumentException(reader.getError());
+                    }
+                    if (nbPairs == 1) {
+                        answers[0] = resolver.getMaximumNoise(reader.getValue(0), reader.getValue(1));
+                    } else {
+                        int[] starts = new int[nbPairs];
+                        int[] ends = new int[nbPairs];
+                        answers = new int[nbPairs];
+                        for (int i = 0; i < nbPairs; i++) {
+                            starts[i] = reader.getValue(2 * i);
+                            ends[i] = reader.getValue(2 * i + 1);
+                        }
+                        resolver.getMaximumNoises(starts, ends, answers);
+                    }
+                    for (int i = 0; i < nbPairs; i++) {
+                        if (i > 0) {
+                            output.write(' ');
+                        }
+                        writeInt(output, digits, answers[i]);
+                    }
+                } catch (RuntimeException e) {
+                    output.write(("ERROR " + e.getMessage()).getBytes(StandardCharsets.US_ASCII));
+                }
+                output.write('\n');
+
+                // Pipelined requests are answered before the responses are sent
+                if (input.available() == 0) {
+                    output.flush();
+                }
+            }
+        } catch (SocketException e) {
+            // The client closed the connection
+        } catch (IOException e) {
+            System.err.println(String.format("[%s] connection failed: %s", this, e.getMessage()));
+        }
+    }
+
+    private static void writeInt(OutputStream output, byte[] digits, int value) throws IOException {
+        long remaining = value;
+        if (remaining < 0) {
+            output.write('-');
+            remaining = -remaining;
+        }
+        int nbDigits = 0;
+        do {
+            digits[nbDigits++] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining > 0);
+        while (nbDigits > 0) {
+            output.write(digits[--nbDigits]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QueryServer(%s)", getPort());
+    }
+}
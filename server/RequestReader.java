@@ -0,0 +1,98 @@
+package server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+class RequestReader {
+    // Maximum number of pairs of a request (so that a connection holds at most 1 MB of values and answers)
+    static final int MAX_PAIRS = 1 << 16;
+
+    private InputStream input;
+    private int[] values;
+    private int nbValues;
+    private String error;
+
+    /**
+     * Creates a reader of requests (lines of whitespace separated ASCII integers).
+     * <li> - input: the buffered stream of the connection.
+     * <li> - values: the integers of the last request (grown when needed, up to 2 * MAX_PAIRS).
+     * <li> - nbValues: the number of integers of the last request.
+     * <li> - error: why the last request was rejected (null if it was not).
+     * @param input: the buffered stream of the connection.
+     */
+    RequestReader(InputStream input) {
+        this.input = input;
+        values = new int[16];
+        nbValues = 0;
+        error = null;
+    }
+
+    /**
+     * Reads the next request. The rest of the line of a malformed or too large request is skipped without being kept.
+     * @return the number of pairs of the request (0 if it is rejected, see getError()), or -1 at the end of the stream.
+     */
+    int readRequest() throws IOException {
+        nbValues = 0;
+        error = null;
+        int current = input.read();
+        if (current < 0) {
+            return -1;
+        }
+        while (current >= 0 && current != '\n') {
+            if (current == ' ' || current == '\t' || current == '\r') {
+                current = input.read();
+                continue;
+            }
+
+            // Accumulate the digits as a negative number so that Integer.MIN_VALUE can be represented, and stop once the
+            // value is out of the range of an int (so that the long never overflows)
+            boolean negative = current == '-';
+            if (negative) {
+                current = input.read();
+            }
+            long value = 0;
+            int nbDigits = 0;
+            while (current >= '0' && current <= '9') {
+                if (value >= Integer.MIN_VALUE) {
+                    value = 10 * value - (current - '0');
+                }
+                nbDigits++;
+                current = input.read();
+            }
+            if (nbDigits == 0 || value < Integer.MIN_VALUE || (!negative && value == Integer.MIN_VALUE)
+                    || (current >= 0 && current != ' ' && current != '\t' && current != '\r' && current != '\n')) {
+                error = "A request must be pairs of node indexes.";
+            } else if (nbValues == 2 * MAX_PAIRS) {
+                error = String.format("A request cannot hold more than %s pairs.", MAX_PAIRS);
+            }
+            if (error != null) {
+                // Skip the rest of the line
+                while (current >= 0 && current != '\n') {
+                    current = input.read();
+                }
+                return 0;
+            }
+            if (nbValues == values.length) {
+                values = Arrays.copyOf(values, 2 * nbValues);
+            }
+            values[nbValues++] = (int) (negative ? value : -value);
+        }
+        if (nbValues == 0 || nbValues % 2 != 0) {
+            error = "A request must be pairs of node indexes.";
+            return 0;
+        }
+        return nbValues / 2;
+    }
+
+    int getValue(int i) {
+        return values[i];
+    }
+
+    /**
+     * @return why the last request was rejected (null if it was not).
+     */
+    String getError() {
+        return error;
+    }
+}